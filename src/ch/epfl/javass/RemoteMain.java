@@ -1,7 +1,11 @@
 package ch.epfl.javass;
 
+import java.util.List;
+
 import ch.epfl.javass.gui.GraphicalPlayerAdapter;
+import ch.epfl.javass.net.GameServer;
 import ch.epfl.javass.net.RemotePlayerServer;
+import ch.epfl.javass.net.StringSerializer;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
@@ -12,6 +16,8 @@ import javafx.stage.Stage;
  */
 public final class RemoteMain extends Application {
 
+    private final static int INDEX_FOR_HOST = 0, INDEX_FOR_PORT = 1;
+
     /**
      * Launches the application 
      * @param args: The running parameters of the game
@@ -21,15 +27,25 @@ public final class RemoteMain extends Application {
     }
 
     /**
-     * Creates the graphical interface of the remote player and run the server 
+     * Creates the graphical interface of the remote player and run the server, or, if a host is given as
+     * argument (host or host:port), connects to the game server of this host
      * @throws Exception: when error occurred during the creation of the  window
      */
     @Override
     public void start(Stage primaryStage) throws Exception {
+        List<String> arguments = this.getParameters().getRaw();
         Thread serverThread = new Thread(() -> {
-            System.out.println("La partie commencera à la connexion du client…");
             RemotePlayerServer server = new RemotePlayerServer(new GraphicalPlayerAdapter());
-            server.run();
+            if (arguments.isEmpty()) {
+                System.out.println("La partie commencera à la connexion du client…");
+                server.run();
+            }
+            else {
+                String[] address = StringSerializer.split(arguments.get(INDEX_FOR_HOST), ":");
+                int port = address.length > INDEX_FOR_PORT ? Integer.parseInt(address[INDEX_FOR_PORT]) : GameServer.DEFAULT_PORT;
+                System.out.println("La partie commencera quand la table sera complète…");
+                server.runConnectedTo(address[INDEX_FOR_HOST], port);
+            }
         });
         serverThread.setDaemon(true);
         serverThread.start();
@@ -0,0 +1,90 @@
+package ch.epfl.javass;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import ch.epfl.javass.net.GameServer;
+
+/**
+ * This class is the launcher of a game server hosting many games (see GameServer), to which the distant players
+ * connect with RemoteMain. It prints regularly the number of tables and of seats.
+ * Usage: ServerMain [-port n] [-remote n] [-iterations n] [-pace seconds] [-threads n] [-status seconds] [-seed n] [-nio true] [-movetime seconds]
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class ServerMain {
+
+    private final static int DEFAULT_REMOTE_SEATS = 1, DEFAULT_ITERATIONS = 10000, DEFAULT_THREADS = 256;
+    private final static double DEFAULT_PACE = 1, DEFAULT_STATUS_PERIOD = 10;
+    private final static int RETURN_EXIT_VALUE = 1, MILLISECONDS_PER_SECOND = 1000;
+
+    /**
+     * Private constructor of ServerMain
+     */
+    private ServerMain() {}
+
+    /**
+     * Runs the game server until the program is stopped
+     * @param args (String[]): the options (see the description of the class)
+     * @throws IOException: if the port can not be opened
+     * @throws InterruptedException: if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i=0; i+1<args.length; i+=2) {
+            options.put(args[i], args[i+1]);
+        }
+
+        int port, remoteSeats, iterations, threads;
+        double pace, statusPeriod, moveTime;
+        long seed;
+        boolean nio;
+        try {
+            port = Integer.parseInt(options.getOrDefault("-port", String.valueOf(GameServer.DEFAULT_PORT)));
+            remoteSeats = Integer.parseInt(options.getOrDefault("-remote", String.valueOf(DEFAULT_REMOTE_SEATS)));
+            iterations = Integer.parseInt(options.getOrDefault("-iterations", String.valueOf(DEFAULT_ITERATIONS)));
+            pace = Double.parseDouble(options.getOrDefault("-pace", String.valueOf(DEFAULT_PACE)));
+            threads = Integer.parseInt(options.getOrDefault("-threads", String.valueOf(DEFAULT_THREADS)));
+            statusPeriod = Double.parseDouble(options.getOrDefault("-status", String.valueOf(DEFAULT_STATUS_PERIOD)));
+            moveTime = Double.parseDouble(options.getOrDefault("-movetime", "0"));
+            nio = Boolean.parseBoolean(options.getOrDefault("-nio", "false"));
+            seed = options.containsKey("-seed") ? Long.parseLong(options.get("-seed")) : new Random().nextLong();
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Error: invalid option value: "+e.getMessage());
+            System.exit(RETURN_EXIT_VALUE);
+            return;
+        }
+
+        GameServer server;
+        try {
+            server = new GameServer(port, remoteSeats, iterations, pace, threads, seed, nio);
+            if (moveTime > 0) {
+                server.enableMoveDeadline(moveTime);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Error: the number of distant players must be between 1 and 4, the number of iterations"
+                    + " and of threads positive and the pace not negative");
+            System.exit(RETURN_EXIT_VALUE);
+            return;
+        }
+
+        Thread acceptThread = new Thread(server::run);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        System.out.println("Game server on port "+server.port()+" ("+remoteSeats+" distant players per table, games on "
+                + (server.usesVirtualThreads() ? "virtual threads" : "a pool of "+threads+" threads")
+                + (nio ? ", connections driven by a single thread" : "")
+                + (moveTime > 0 ? ", "+moveTime+" s per move of a distant player" : "")+")");
+
+        while (acceptThread.isAlive()) {
+            Thread.sleep((long)(statusPeriod*MILLISECONDS_PER_SECOND));
+            System.out.println(String.format("tables: %d active, %d queued, %d finished (%d failed) - seats: %d connected, %d waiting, %d playing - moves after the deadline: %d",
+                    server.activeTables(), server.queuedTables(), server.finishedTables(), server.failedTables(),
+                    server.connectedSeats(), server.waitingSeats(), server.playingSeats(), server.moveTimeouts()));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ch.epfl.javass.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Class that measures the time and the memory allocated by an operation: the operation is first run until the
+ * code is compiled (warm up), then it is timed on several rounds, each round calling it enough times to last
+ * a given time.
+ * The results of the operation are summed and kept so that the compiler can not remove the calls
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class Benchmark {
+
+    private final static double NANOSECONDS_PER_SECOND = 1e9;
+
+    private final long warmupTime;
+    private final long roundTime;
+    private final int rounds;
+    private long sink;
+
+    /**
+     * Constructor of Benchmark
+     * @param warmupTime (double): the time of the warm up of each operation, in seconds
+     * @param roundTime (double): the minimal time of a round of measure, in seconds
+     * @param rounds (int): the number of rounds of measure
+     */
+    public Benchmark(double warmupTime, double roundTime, int rounds) {
+        this.warmupTime = (long)(warmupTime*NANOSECONDS_PER_SECOND);
+        this.roundTime = (long)(roundTime*NANOSECONDS_PER_SECOND);
+        this.rounds = rounds;
+    }
+
+    /**
+     * Measures the given operation, which is called with the number of the call (so that it can
+     * go through different inputs)
+     * @param name (String): the name of the operation
+     * @param operation (IntToLongFunction): the operation, returning any value depending on its work
+     * @return (Result): the time and the memory allocated per call
+     */
+    public Result measure(String name, IntToLongFunction operation) {
+        //Warm up, finding how many calls a round needs
+        int calls = 1;
+        long start = System.nanoTime();
+        long time = run(operation, calls);
+        while (System.nanoTime()-start < warmupTime || time < roundTime) {
+            if (time < roundTime) {
+                calls = (int)Math.min(Integer.MAX_VALUE, 2L*calls);
+            }
+            time = run(operation, calls);
+        }
+
+        double[] nanosPerCall = new double[rounds];
+        long allocatedBefore = allocatedBytes();
+        for (int r=0; r<rounds; ++r) {
+            nanosPerCall[r] = (double)run(operation, calls)/calls;
+        }
+        long allocated = allocatedBytes()-allocatedBefore;
+
+        return new Result(name, nanosPerCall, allocatedBefore < 0 ? -1 : (double)allocated/((long)rounds*calls));
+    }
+
+    /**
+     * Gives the sum of all the results of the operations measured, which has no meaning but must be used
+     * @return (long): the sum of the results
+     */
+    public long sink() {
+        return sink;
+    }
+
+    /**
+     * Calls the operation the given number of times
+     * @param operation (IntToLongFunction): the operation
+     * @param calls (int): the number of calls
+     * @return (long): the time taken, in nanoseconds
+     */
+    private long run(IntToLongFunction operation, int calls) {
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int i=0; i<calls; ++i) {
+            sum += operation.applyAsLong(i);
+        }
+        long time = System.nanoTime()-start;
+        sink += sum;
+        return time;
+    }
+
+    /**
+     * Gives the number of bytes allocated by the current thread since its start, if the virtual machine can say it
+     * @return (long): the number of bytes allocated, -1 if it is not known
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Represent the result of the measure of an operation
+     */
+    public static final class Result {
+
+        private final String name;
+        private final double mean;
+        private final double deviation;
+        private final double bytesPerCall;
+
+        /**
+         * Constructor of Result
+         * @param name (String): the name of the operation
+         * @param nanosPerCall (double[]): the time per call of each round, in nanoseconds
+         * @param bytesPerCall (double): the number of bytes allocated per call, -1 if unknown
+         */
+        private Result(String name, double[] nanosPerCall, double bytesPerCall) {
+            this.name = name;
+            this.bytesPerCall = bytesPerCall;
+            mean = Arrays.stream(nanosPerCall).average().orElse(0);
+            double variance = Arrays.stream(nanosPerCall).map(t -> (t-mean)*(t-mean)).sum()/Math.max(1, nanosPerCall.length-1);
+            deviation = Math.sqrt(variance);
+        }
+
+        /**
+         * Gives the name of the operation
+         * @return (String): the name
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Gives the mean time of a call over the rounds
+         * @return (double): the time per call, in nanoseconds
+         */
+        public double nanosPerCall() {
+            return mean;
+        }
+
+        /**
+         * Gives the standard deviation of the time of a call between the rounds
+         * @return (double): the deviation, in nanoseconds
+         */
+        public double deviation() {
+            return deviation;
+        }
+
+        /**
+         * Gives the number of bytes allocated per call
+         * @return (double): the bytes per call, -1 if unknown
+         */
+        public double bytesPerCall() {
+            return bytesPerCall;
+        }
+
+        /**
+         * Override of the method toString
+         */
+        @Override
+        public String toString() {
+            return String.format("%-45s %14.1f ns/op  +/- %6.1f%%  %14.0f op/s  %10.1f B/op", name, mean,
+                    mean == 0 ? 0 : 100*deviation/mean, NANOSECONDS_PER_SECOND/mean, bytesPerCall);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ch.epfl.javass.bench;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import ch.epfl.javass.jass.DeadlinePlayer;
+import ch.epfl.javass.jass.JassGame;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.Player;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.RandomPlayer;
+
+/**
+ * Check of DeadlinePlayer with a slow underlying player: a MctsPlayer with many iterations (which ignores the deadline)
+ * is given a few milliseconds per move against three RandomPlayers, so that its cards are late and it is notified of
+ * the game while it is still searching.
+ * The games must end without error and some cards must have been played by the fallback player.
+ * Usage: DeadlinePlayerCheck [-games n]
+ * The program exits with status 1 if the check fails
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class DeadlinePlayerCheck {
+
+    private final static int DEFAULT_GAMES = 20;
+    private final static int SLOW_ITERATIONS = 200_000;
+    private final static double MAX_TIME = 0.005;
+    private final static PlayerId CHECKED_PLAYER = PlayerId.PLAYER_1;
+
+    /**
+     * Private constructor of DeadlinePlayerCheck
+     */
+    private DeadlinePlayerCheck() {}
+
+    /**
+     * Runs the check
+     * @param args (String[]): the options (see the description of the class)
+     */
+    public static void main(String[] args) {
+        int games = DEFAULT_GAMES;
+        if (args.length == 2 && args[0].equals("-games")) {
+            games = Integer.parseInt(args[1]);
+        }
+        else if (args.length != 0) {
+            System.err.println("Usage: DeadlinePlayerCheck [-games n]");
+            System.exit(1);
+        }
+
+        int failures = 0;
+        int moves = 0;
+        int timeouts = 0;
+        for (int g=0; g<games; ++g) {
+            Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+            Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+            Map<PlayerId, Boolean> help = new EnumMap<>(PlayerId.class);
+            DeadlinePlayer checked = new DeadlinePlayer(new MctsPlayer(CHECKED_PLAYER, g, SLOW_ITERATIONS), new RandomPlayer(g), MAX_TIME);
+            for (PlayerId id: PlayerId.ALL) {
+                players.put(id, id == CHECKED_PLAYER ? checked : new RandomPlayer(g*PlayerId.COUNT+id.ordinal()));
+                names.put(id, id.name());
+                help.put(id, false);
+            }
+
+            try {
+                JassGame game = new JassGame(g, players, names, help);
+                while (!game.isGameOver()) {
+                    game.advanceToEndOfNextTrick();
+                }
+            }
+            catch (RuntimeException e) {
+                ++failures;
+                System.out.println("Game " + g + " failed: " + e);
+            }
+            moves += checked.moves();
+            timeouts += checked.timeouts();
+        }
+
+        System.out.printf("%d games, %d failed, %d moves, %d timeouts%n", games, failures, moves, timeouts);
+        if (failures > 0 || timeouts == 0) {
+            System.out.println(timeouts == 0 ? "FAILED: the underlying player was never late" : "FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
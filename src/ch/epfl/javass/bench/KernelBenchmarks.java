@@ -0,0 +1,309 @@
+package ch.epfl.javass.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntToLongFunction;
+
+import ch.epfl.javass.jass.Card;
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.CardSet;
+import ch.epfl.javass.jass.Jass;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.PackedCardSet;
+import ch.epfl.javass.jass.PackedScore;
+import ch.epfl.javass.jass.PackedTrick;
+import ch.epfl.javass.jass.PackedTrickState;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.Score;
+import ch.epfl.javass.jass.TeamId;
+import ch.epfl.javass.jass.TurnState;
+import ch.epfl.javass.net.JassCommand;
+import ch.epfl.javass.net.JassMessage;
+
+/**
+ * Benchmarks of the hot paths of the game: the packed representations, the TurnState, the messages sent to the
+ * remote players and the MCTS search.
+ * The inputs are states of random turns, always the same ones.
+ * Usage: KernelBenchmarks [-filter text] [-out results.csv] [-compare baseline.csv] [-tolerance percent]
+ * With -compare, an operation at least tolerance percent slower (10 by default) or allocating more than
+ * the baseline is reported as a regression, and the program exits with status 1
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class KernelBenchmarks {
+
+    private final static int STATES = 4096;
+    private final static long SEED = 2019;
+    private final static int[] MCTS_ITERATIONS = {1000, 10000, 100000};
+    private final static double DEFAULT_TOLERANCE = 10;
+    private final static int CARD_FRAME_SIZE = 1+3*Long.BYTES+Integer.BYTES;
+
+    //The inputs: for each state, the packed trick (not full) and its extended representation, the hand of the next player, a card it can play
+    //and the score (the score of the previous turns and the tricks already collected of the current turn), and the
+    //message CARD asking this player to play in the text protocol and in the binary protocol (all the frames one after the other)
+    private final static int[] TRICKS = new int[STATES];
+    private final static long[] TRICK_STATES = new long[STATES];
+    private final static long[] HANDS = new long[STATES];
+    private final static int[] CARDS = new int[STATES];
+    private final static long[] SCORES = new long[STATES];
+    private final static TurnState[] TURN_STATES = new TurnState[STATES];
+    private final static String[] CARD_LINES = new String[STATES];
+    private final static byte[] CARD_FRAMES = new byte[STATES*CARD_FRAME_SIZE];
+    private final static int MASK = STATES-1;
+
+    /**
+     * Private constructor of KernelBenchmarks
+     */
+    private KernelBenchmarks() {}
+
+    /**
+     * Runs the benchmarks
+     * @param args (String[]): the options (see the description of the class)
+     * @throws IOException: if the results can not be written or the baseline read
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i=0; i+1<args.length; i+=2) {
+            options.put(args[i], args[i+1]);
+        }
+        String filter = options.getOrDefault("-filter", "");
+
+        createStates();
+        Map<String, IntToLongFunction> operations = operations();
+
+        Benchmark benchmark = new Benchmark(1, 0.2, 5);
+        List<Benchmark.Result> results = new ArrayList<>();
+        for (Map.Entry<String, IntToLongFunction> e: operations.entrySet()) {
+            if (e.getKey().contains(filter)) {
+                Benchmark.Result result = benchmark.measure(e.getKey(), e.getValue());
+                System.out.println(result);
+                results.add(result);
+            }
+        }
+        System.out.println("(" + benchmark.sink() + ")");
+
+        if (options.containsKey("-out")) {
+            try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(Paths.get(options.get("-out")), StandardCharsets.UTF_8))) {
+                for (Benchmark.Result r: results) {
+                    w.println(r.name() + "," + r.nanosPerCall() + "," + r.bytesPerCall());
+                }
+            }
+        }
+
+        if (options.containsKey("-compare")) {
+            double tolerance = Double.parseDouble(options.getOrDefault("-tolerance", String.valueOf(DEFAULT_TOLERANCE)));
+            if (regressions(results, options.get("-compare"), tolerance) > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Gives the operations measured, in order
+     * @return (Map<String, IntToLongFunction>): the operations, by name
+     */
+    private static Map<String, IntToLongFunction> operations() {
+        Map<String, IntToLongFunction> operations = new LinkedHashMap<>();
+        operations.put("PackedTrick.playableCards", i -> PackedTrick.playableCards(TRICKS[i & MASK], HANDS[i & MASK]));
+        operations.put("PackedTrick.winningPlayer", i -> {
+            int trick = TRICKS[i & MASK];
+            return PackedTrick.isEmpty(trick) ? 0 : PackedTrick.winningPlayer(trick).ordinal();
+        });
+        operations.put("PackedTrick.points", i -> PackedTrick.points(TRICKS[i & MASK]));
+        operations.put("PackedTrickState.playableCards", i -> PackedTrickState.playableCards(TRICK_STATES[i & MASK], HANDS[i & MASK]));
+        operations.put("PackedTrickState.winningPlayer", i -> {
+            long trick = TRICK_STATES[i & MASK];
+            return PackedTrickState.isEmpty(trick) ? 0 : PackedTrickState.winningPlayer(trick).ordinal();
+        });
+        operations.put("PackedTrickState.withAddedCard", i -> PackedTrickState.withAddedCard(TRICK_STATES[i & MASK], CARDS[i & MASK]));
+        operations.put("PackedCardSet.get", i -> {
+            long hand = HANDS[i & MASK];
+            return PackedCardSet.get(hand, i % PackedCardSet.size(hand));
+        });
+        operations.put("PackedCardSet.get(unplayed)", i -> {
+            long unplayed = TURN_STATES[i & MASK].packedUnplayedCards();
+            return PackedCardSet.get(unplayed, i % PackedCardSet.size(unplayed));
+        });
+        operations.put("PackedCardSet.toString", i -> PackedCardSet.toString(HANDS[i & MASK]).length());
+        operations.put("PackedScore.withAdditionalTrick", i -> PackedScore.withAdditionalTrick(SCORES[i & MASK], TeamId.ALL.get(i & 1), i & 0x3F));
+        operations.put("PackedScore.nextTurn", i -> PackedScore.nextTurn(SCORES[i & MASK]));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(written);
+        ByteArrayInputStream frames = new ByteArrayInputStream(CARD_FRAMES);
+        DataInputStream in = new DataInputStream(frames);
+        operations.put("JassMessage.writeText(CARD)", i -> {
+            written.reset();
+            try {
+                cardMessage(i).writeText(out);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written.size();
+        });
+        operations.put("JassMessage.ofText(CARD)", i -> JassMessage.ofText(CARD_LINES[i & MASK]).longField(3));
+        operations.put("JassMessage.writeBinary(CARD)", i -> {
+            written.reset();
+            try {
+                cardMessage(i).writeBinary(out);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written.size();
+        });
+        operations.put("JassMessage.readBinary(CARD)", i -> {
+            if (frames.available() == 0) {
+                frames.reset();
+            }
+            try {
+                return JassMessage.readBinary(in).longField(3);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        operations.put("TurnState.withNewCardPlayedAndTrickCollected", i -> TURN_STATES[i & MASK]
+                .withNewCardPlayedAndTrickCollected(Card.ofPacked(CARDS[i & MASK])).packedTrick());
+
+        //Each call searches from another state than the previous one, so that the player never continues the search of
+        //its previous tree (see MctsPlayer) and each call measures one decision of the given number of iterations
+        int[] playerStates = statesOf(PlayerId.PLAYER_1);
+        for (int iterations: MCTS_ITERATIONS) {
+            MctsPlayer player = new MctsPlayer(PlayerId.PLAYER_1, SEED, iterations);
+            operations.put("MctsPlayer.cardToPlay(new state, " + iterations + ")", i -> {
+                int s = playerStates[Integer.remainderUnsigned(i, playerStates.length)];
+                return player.cardToPlay(TURN_STATES[s], CardSet.ofPacked(HANDS[s])).packed();
+            });
+        }
+        return operations;
+    }
+
+    /**
+     * Gives the message CARD sent to ask the next player of the given state to play
+     * @param i (int): the number of the call
+     * @return (JassMessage): the message
+     */
+    private static JassMessage cardMessage(int i) {
+        TurnState state = TURN_STATES[i & MASK];
+        return JassMessage.of(JassCommand.CARD, state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), HANDS[i & MASK]);
+    }
+
+    /**
+     * Gives the indices of the states where the given player has to play, each state appearing once
+     * @param player (PlayerId): the player
+     * @return (int[]): the indices of the states, in order
+     */
+    private static int[] statesOf(PlayerId player) {
+        int count = 0;
+        int[] states = new int[STATES];
+        for (int s=0; s<STATES; ++s) {
+            if (TURN_STATES[s].nextPlayer() == player) {
+                states[count++] = s;
+            }
+        }
+        return Arrays.copyOf(states, count);
+    }
+
+    /**
+     * Creates the inputs by playing random turns
+     */
+    private static void createStates() {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        long gameScore = PackedScore.INITIAL;
+        int s = 0;
+        while (s < STATES) {
+            long[] hands = deal(rng);
+            TurnState state = TurnState.initial(Color.ALL.get(rng.nextInt(Color.COUNT)), Score.ofPacked(gameScore), PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+            while (!state.isTerminal() && s < STATES) {
+                int player = state.nextPlayer().ordinal();
+                long playable = PackedTrick.playableCards(state.packedTrick(), hands[player]);
+                int card = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+
+                TRICKS[s] = state.packedTrick();
+                TRICK_STATES[s] = PackedTrickState.ofTrick(state.packedTrick());
+                HANDS[s] = hands[player];
+                CARDS[s] = card;
+                SCORES[s] = state.packedScore();
+                TURN_STATES[s] = state;
+                CARD_LINES[s] = cardMessage(s).toText();
+                System.arraycopy(cardMessage(s).toBinary(), 0, CARD_FRAMES, s*CARD_FRAME_SIZE, CARD_FRAME_SIZE);
+                ++s;
+
+                hands[player] = PackedCardSet.remove(hands[player], card);
+                state = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(card));
+            }
+            gameScore = PackedScore.nextTurn(state.packedScore());
+            if (PackedScore.totalPoints(gameScore, TeamId.TEAM_1) >= Jass.WINNING_POINTS
+                    || PackedScore.totalPoints(gameScore, TeamId.TEAM_2) >= Jass.WINNING_POINTS) {
+                gameScore = PackedScore.INITIAL;
+            }
+        }
+    }
+
+    /**
+     * Deals the cards randomly between the players
+     * @param rng (SplittableRandom): the random generator
+     * @return (long[]): the packed hands, indexed by the ordinal of the players
+     */
+    private static long[] deal(SplittableRandom rng) {
+        long[] hands = new long[PlayerId.COUNT];
+        long cards = PackedCardSet.ALL_CARDS;
+        for (int p=0; p<PlayerId.COUNT; ++p) {
+            for (int i=0; i<Jass.HAND_SIZE; ++i) {
+                int card = PackedCardSet.get(cards, rng.nextInt(PackedCardSet.size(cards)));
+                cards = PackedCardSet.remove(cards, card);
+                hands[p] = PackedCardSet.add(hands[p], card);
+            }
+        }
+        return hands;
+    }
+
+    /**
+     * Compares the results with the ones of the given baseline file and prints the regressions
+     * @param results (List<Benchmark.Result>): the results
+     * @param baselineFile (String): the baseline, as written with -out
+     * @param tolerance (double): the slow down tolerated, in percent
+     * @return (int): the number of regressions
+     * @throws IOException: if the baseline can not be read
+     */
+    private static int regressions(List<Benchmark.Result> results, String baselineFile, double tolerance) throws IOException {
+        Map<String, double[]> baseline = new HashMap<>();
+        for (String line: Files.readAllLines(Paths.get(baselineFile), StandardCharsets.UTF_8)) {
+            String[] fields = line.split(",");
+            baseline.put(fields[0], new double[] {Double.parseDouble(fields[1]), Double.parseDouble(fields[2])});
+        }
+
+        int regressions = 0;
+        for (Benchmark.Result r: results) {
+            double[] base = baseline.get(r.name());
+            if (base == null) {
+                continue;
+            }
+            double change = 100*(r.nanosPerCall()-base[0])/base[0];
+            boolean slower = change > tolerance;
+            boolean allocates = r.bytesPerCall() >= 0 && base[1] >= 0 && r.bytesPerCall() > base[1]+1;
+            System.out.println(String.format("%-45s %+7.1f%% time, %10.1f -> %10.1f B/op%s", r.name(), change,
+                    base[1], r.bytesPerCall(), slower || allocates ? "  REGRESSION" : ""));
+            if (slower || allocates) {
+                ++regressions;
+            }
+        }
+        return regressions;
+    }
+}
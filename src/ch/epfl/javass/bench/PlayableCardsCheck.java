@@ -0,0 +1,206 @@
+package ch.epfl.javass.bench;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+import ch.epfl.javass.jass.PackedCard;
+import ch.epfl.javass.jass.PackedCardSet;
+import ch.epfl.javass.jass.PackedTrick;
+import ch.epfl.javass.jass.PackedTrickState;
+import ch.epfl.javass.jass.PlayerId;
+
+/**
+ * Exhaustive check of the playable cards computed from the tables of PackedTrick, against a copy of the rules as they
+ * were written before the tables: for each trump, every trick of 1 to 3 cards, every subset of the trumps not in the
+ * trick, and for the other cards none, the ones of the base color, the ones of the other colors or all of them.
+ * PackedTrick.playableCards (from the trick and from its context) and PackedTrickState.playableCards must give the
+ * same set as the rules.
+ * To run again when the tables of PackedTrick change.
+ * The program exits with status 1 if a set differs
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class PlayableCardsCheck {
+
+    private final static int MAX_MISMATCHES_SHOWN = 10;
+    private final static int TRICK_SIZE_CHECKED = PackedTrick.MAX_CARD_PER_TRICK-1;
+
+    private static long cases;
+    private static long mismatches;
+
+    /**
+     * Private constructor of PlayableCardsCheck
+     */
+    private PlayableCardsCheck() {}
+
+    /**
+     * Runs the check
+     * @param args (String[]): no arguments
+     */
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        for (Color trump: Color.ALL) {
+            checkTricks(PackedTrick.firstEmpty(trump, PlayerId.PLAYER_1), PackedCardSet.EMPTY);
+        }
+        double seconds = (System.nanoTime()-start)/1e9;
+
+        System.out.printf("%d cases checked in %.1f s, %d mismatches%n", cases, seconds, mismatches);
+        if (mismatches > 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Checks the given trick if it is not empty, then all the tricks obtained by adding a card to it, up to
+     * TRICK_SIZE_CHECKED cards
+     * @param pkTrick (int): the packed trick
+     * @param trickCards (long): the packed set of the cards of the trick
+     */
+    private static void checkTricks(int pkTrick, long trickCards) {
+        if (!PackedTrick.isEmpty(pkTrick)) {
+            checkHands(pkTrick, trickCards);
+        }
+        if (PackedTrick.size(pkTrick) == TRICK_SIZE_CHECKED) {
+            return;
+        }
+        long remaining = PackedCardSet.difference(PackedCardSet.ALL_CARDS, trickCards);
+        for (int i=0; i<PackedCardSet.size(remaining); ++i) {
+            int pkCard = PackedCardSet.get(remaining, i);
+            checkTricks(PackedTrick.withAddedCard(pkTrick, pkCard), PackedCardSet.add(trickCards, pkCard));
+        }
+    }
+
+    /**
+     * Checks the given trick with all the hands described in the class (without the cards of the trick)
+     * @param pkTrick (int): the packed trick, not empty
+     * @param trickCards (long): the packed set of the cards of the trick
+     */
+    private static void checkHands(int pkTrick, long trickCards) {
+        Color trump = PackedTrick.trump(pkTrick);
+        Color baseColor = PackedTrick.baseColor(pkTrick);
+        long notPlayed = PackedCardSet.difference(PackedCardSet.ALL_CARDS, trickCards);
+        long trumps = PackedCardSet.subsetOfColor(notPlayed, trump);
+        long baseCards = baseColor == trump ? PackedCardSet.EMPTY : PackedCardSet.subsetOfColor(notPlayed, baseColor);
+        long otherCards = PackedCardSet.difference(notPlayed, PackedCardSet.union(trumps, baseCards));
+        long[] others = {PackedCardSet.EMPTY, baseCards, otherCards, PackedCardSet.union(baseCards, otherCards)};
+
+        //The subsets of the trumps, enumerated as the subsets of their bits
+        long trumpSubset = PackedCardSet.EMPTY;
+        do {
+            for (long other: others) {
+                check(pkTrick, PackedCardSet.union(trumpSubset, other));
+            }
+            trumpSubset = (trumpSubset-trumps) & trumps;
+        } while (trumpSubset != PackedCardSet.EMPTY);
+    }
+
+    /**
+     * Compares the playable cards of the given hand in the given trick with the ones of the rules
+     * @param pkTrick (int): the packed trick, not empty
+     * @param pkHand (long): the packed hand
+     */
+    private static void check(int pkTrick, long pkHand) {
+        ++cases;
+        long expected = rulesPlayableCards(pkTrick, pkHand);
+        int trump = PackedTrick.trump(pkTrick).ordinal();
+        int baseColor = PackedTrick.baseColor(pkTrick).ordinal();
+        int winningCard = PackedTrick.card(pkTrick, winningIndex(pkTrick));
+        long[] actual = {
+                PackedTrick.playableCards(pkTrick, pkHand),
+                PackedTrick.playableCards(trump, baseColor, winningCard, pkHand),
+                PackedTrickState.playableCards(PackedTrickState.ofTrick(pkTrick), pkHand)
+        };
+        for (long a: actual) {
+            if (a != expected) {
+                if (++mismatches <= MAX_MISMATCHES_SHOWN) {
+                    System.out.println("Trick " + PackedTrick.toString(pkTrick) + ", hand " + PackedCardSet.toString(pkHand)
+                    + ": " + PackedCardSet.toString(a) + " instead of " + PackedCardSet.toString(expected));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives the index of the card winning the trick
+     * @param pkTrick (int): the packed trick, not empty
+     * @return (int): the index of the winning card
+     */
+    private static int winningIndex(int pkTrick) {
+        int trump = PackedTrick.trump(pkTrick).ordinal();
+        int index = 0;
+        for (int i=1; i<PackedTrick.size(pkTrick); ++i) {
+            if (PackedCard.isBetter(trump, PackedTrick.card(pkTrick, i), PackedTrick.card(pkTrick, index))) {
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Copy of PackedTrick.playableCards as it was written before its tables: the rules of the game applied to the trick
+     * @param pkTrick (int): the packed representation of the trick
+     * @param pkHand (long): the packed representation of the hand of cards
+     * @return (long): all the cards of the hand that can be played depending on the current cards in the trick
+     */
+    private static long rulesPlayableCards(int pkTrick, long pkHand) {
+
+        if(PackedTrick.card(pkTrick,0)==PackedCard.INVALID) {
+            return pkHand;
+        }
+
+        //Dividing the hand in four set of card depending on the "nature" of the card
+        Color trump = PackedTrick.trump(pkTrick);
+        long setOfTrump = PackedCardSet.subsetOfColor(pkHand, trump);
+        long setOfHigherTrump = findTrumpAbove( pkTrick, pkHand,trump);
+        long setOfLowerTrump = PackedCardSet.difference(setOfTrump, setOfHigherTrump);
+        long setOfBaseColor = PackedCardSet.subsetOfColor(pkHand, PackedTrick.baseColor(pkTrick));
+        long setOfOtherColor = PackedCardSet.difference(pkHand, PackedCardSet.union(setOfTrump, setOfBaseColor));
+
+        //Test to return the good set of card
+        if (setOfTrump == PackedCardSet.singleton(PackedCard.pack(trump, Rank.JACK))&& PackedTrick.baseColor(pkTrick) == trump){
+            return pkHand;
+        }
+        else if(setOfBaseColor!=PackedCardSet.EMPTY ) {
+            return PackedCardSet.union(setOfBaseColor, setOfHigherTrump);
+        }
+        else if(setOfOtherColor!=PackedCardSet.EMPTY) {
+            return PackedCardSet.union(setOfOtherColor,setOfHigherTrump);
+
+        }
+        else if(setOfHigherTrump!=PackedCardSet.EMPTY) {
+            return setOfHigherTrump;
+        }
+        else {return setOfLowerTrump; }
+    }
+
+    /**
+     * Copy of the spare method of the rules extracting all the trump cards of the hand that are higher than the
+     * highest trump card placed in the trick
+     * @param pkTrick (int): the packed representation of a trick
+     * @param pkHand (long): the packed representation of a hand
+     * @return (Long): The card set of all the trump cards from the hand that are higher than the highest trump card in the trick
+     */
+    private static long findTrumpAbove(int pkTrick, long pkHand, Color trump) {
+
+        int size =PackedTrick.size(pkTrick);
+        int bestCard= PackedCard.INVALID;
+
+        for (int i=0; i<size; ++i) {
+            if ( PackedCard.color(PackedTrick.card(pkTrick,i))==trump) {
+                if (bestCard == PackedCard.INVALID) { bestCard=PackedTrick.card(pkTrick,i); }
+                else {
+                    if (PackedCard.isBetter(trump, PackedTrick.card(pkTrick, i), bestCard)) {bestCard=PackedTrick.card(pkTrick,i);}
+                }
+            }
+        }
+
+        if (bestCard == PackedCard.INVALID) {
+            return PackedCardSet.subsetOfColor(pkHand, trump);
+        }
+        else {
+            return PackedCardSet.intersection(pkHand, PackedCardSet.trumpAbove(bestCard));
+        }
+    }
+}
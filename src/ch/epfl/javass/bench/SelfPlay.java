@@ -0,0 +1,214 @@
+package ch.epfl.javass.bench;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ch.epfl.javass.jass.Card;
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.CardSet;
+import ch.epfl.javass.jass.Jass;
+import ch.epfl.javass.jass.JassGame;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.Player;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.PositionDataset;
+import ch.epfl.javass.jass.Score;
+import ch.epfl.javass.jass.TeamId;
+import ch.epfl.javass.jass.Trick;
+import ch.epfl.javass.jass.TurnState;
+
+/**
+ * Plays games between four MctsPlayers without graphical interface, several games at the same time (one per thread),
+ * and writes each decision with the root visit distribution of its search in a dataset of positions (see
+ * PositionDataset), each thread writing its own segments of the file.
+ * Usage: SelfPlay [-games n] [-threads n] [-iterations n] [-seed n] [-out file]
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class SelfPlay {
+
+    private final static int DEFAULT_GAMES = 100, DEFAULT_ITERATIONS = 1000;
+    private final static long DEFAULT_SEED = 2019;
+    private final static String DEFAULT_OUT = "positions.dat";
+    private final static int RETURN_EXIT_VALUE = 1;
+    private final static double NANOSECONDS_PER_SECOND = 1e9;
+
+    /**
+     * Private constructor of SelfPlay
+     */
+    private SelfPlay() {}
+
+    /**
+     * Runs the games and writes the dataset
+     * @param args (String[]): the options (see the description of the class)
+     * @throws InterruptedException: if the thread is interrupted while waiting for the games
+     * @throws ExecutionException: if a game fails
+     * @throws IOException: if the dataset can not be written
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i=0; i+1<args.length; i+=2) {
+            options.put(args[i], args[i+1]);
+        }
+
+        int games, threads, iterations;
+        long seed;
+        try {
+            games = Integer.parseInt(options.getOrDefault("-games", String.valueOf(DEFAULT_GAMES)));
+            threads = Integer.parseInt(options.getOrDefault("-threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            iterations = Integer.parseInt(options.getOrDefault("-iterations", String.valueOf(DEFAULT_ITERATIONS)));
+            seed = Long.parseLong(options.getOrDefault("-seed", String.valueOf(DEFAULT_SEED)));
+            if (games <= 0 || threads <= 0 || iterations < Jass.TRICKS_PER_TURN) {
+                throw new IllegalArgumentException();
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Usage: SelfPlay [-games n] [-threads n] [-iterations n] [-seed n] [-out file]");
+            System.exit(RETURN_EXIT_VALUE);
+            return;
+        }
+
+        Random rng = new Random(seed);
+        long[] gameSeeds = new long[games];
+        for (int g=0; g<games; ++g) {
+            gameSeeds[g] = rng.nextLong();
+        }
+
+        long start = System.nanoTime();
+        try (PositionDataset dataset = new PositionDataset(Paths.get(options.getOrDefault("-out", DEFAULT_OUT)))) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t=0; t<threads; ++t) {
+                int first = t;
+                int step = threads;
+                futures.add(pool.submit(() -> {
+                    PositionDataset.Writer writer = dataset.writer();
+                    for (int g=first; g<games; g+=step) {
+                        play(gameSeeds[g], iterations, writer);
+                    }
+                }));
+            }
+            for (Future<?> f: futures) {
+                f.get();
+            }
+            pool.shutdown();
+
+            long time = System.nanoTime()-start;
+            System.out.println(String.format("%d games, %d positions in %.1f s on %d threads: %.0f positions/s", games,
+                    dataset.records(), time/NANOSECONDS_PER_SECOND, threads, dataset.records()*NANOSECONDS_PER_SECOND/time));
+        }
+    }
+
+    /**
+     * Plays a game between four MctsPlayers and writes their decisions
+     * @param seed (long): the seed of the game and of the players
+     * @param iterations (int): the number of iterations of the players
+     * @param writer (PositionDataset.Writer): the writer of the thread
+     */
+    private static void play(long seed, int iterations, PositionDataset.Writer writer) {
+        Random rng = new Random(seed);
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, Boolean> help = new EnumMap<>(PlayerId.class);
+        for (PlayerId id: PlayerId.ALL) {
+            players.put(id, new RecordingPlayer(new MctsPlayer(id, rng.nextLong(), iterations), writer));
+            names.put(id, id.name());
+            help.put(id, false);
+        }
+
+        JassGame game = new JassGame(rng.nextLong(), players, names, help);
+        while (!game.isGameOver()) {
+            game.advanceToEndOfNextTrick();
+        }
+    }
+
+    /**
+     * Represent a player that writes each card chosen by the underlying MctsPlayer, with the root visit distribution
+     * of its search
+     */
+    private static final class RecordingPlayer implements Player {
+
+        private final MctsPlayer underlyingPlayer;
+        private final PositionDataset.Writer writer;
+        private final int[] visits = new int[PositionDataset.CARD_COUNT];
+
+        /**
+         * Constructor of RecordingPlayer
+         * @param underlyingPlayer (MctsPlayer): the player that plays
+         * @param writer (PositionDataset.Writer): the writer of the thread
+         */
+        private RecordingPlayer(MctsPlayer underlyingPlayer, PositionDataset.Writer writer) {
+            this.underlyingPlayer = underlyingPlayer;
+            this.writer = writer;
+        }
+
+        /**
+         * Calls the method cardToPlay of the underlying player and writes the decision
+         */
+        @Override
+        public Card cardToPlay(TurnState state, CardSet hand) {
+            Card card = underlyingPlayer.cardToPlay(state, hand);
+            underlyingPlayer.lastRootVisits(visits);
+            writer.write(state, hand, card, visits);
+            return card;
+        }
+
+        /**
+         * Calls the method setPlayers of the underlying player
+         */
+        @Override
+        public void setPlayers(PlayerId ownId, Map<PlayerId, String> playerNames, Map<PlayerId, Boolean> helpMap) {
+            underlyingPlayer.setPlayers(ownId, playerNames, helpMap);
+        }
+
+        /**
+         * Calls the method updateHand of the underlying player
+         */
+        @Override
+        public void updateHand(CardSet newHand) {
+            underlyingPlayer.updateHand(newHand);
+        }
+
+        /**
+         * Calls the method setTrump of the underlying player
+         */
+        @Override
+        public void setTrump(Color trump) {
+            underlyingPlayer.setTrump(trump);
+        }
+
+        /**
+         * Calls the method updateTrick of the underlying player
+         */
+        @Override
+        public void updateTrick(Trick newTrick) {
+            underlyingPlayer.updateTrick(newTrick);
+        }
+
+        /**
+         * Calls the method updateScore of the underlying player
+         */
+        @Override
+        public void updateScore(Score score) {
+            underlyingPlayer.updateScore(score);
+        }
+
+        /**
+         * Calls the method setWinningTeam of the underlying player
+         */
+        @Override
+        public void setWinningTeam(TeamId winningTeam) {
+            underlyingPlayer.setWinningTeam(winningTeam);
+        }
+    }
+}
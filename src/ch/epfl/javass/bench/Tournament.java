@@ -0,0 +1,381 @@
+package ch.epfl.javass.bench;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ch.epfl.javass.jass.Card;
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.CardSet;
+import ch.epfl.javass.jass.GameLog;
+import ch.epfl.javass.jass.JassGame;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.Player;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.RandomPlayer;
+import ch.epfl.javass.jass.Score;
+import ch.epfl.javass.jass.TeamId;
+import ch.epfl.javass.jass.Trick;
+import ch.epfl.javass.jass.TurnState;
+import ch.epfl.javass.net.StringSerializer;
+
+/**
+ * Plays many games between the given players without graphical interface, several games at the same time
+ * (one per thread of a pool), and prints the number of games per second, the win rate of each team with its
+ * confidence interval and the percentiles of the time taken by each player to choose a card.
+ * Usage: Tournament player1 player2 player3 player4 [-games n] [-threads n] [-seed n] [-log file]
+ * where a player is r (random), s:iterations (MctsPlayer), i:iterations (MctsPlayer with information sets) or
+ * t:iterations (MctsPlayer with a transposition table),
+ * the players 1 and 3 forming the team 1. With -log, the games are appended to the given log (see GameLog)
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class Tournament {
+
+    private final static int DEFAULT_GAMES = 100;
+    private final static long DEFAULT_SEED = 2019;
+    private final static int DEFAULT_ITERATIONS = 10000;
+    private final static int TABLE_ENTRIES = 1 << 15;
+    private final static int RETURN_EXIT_VALUE = 1;
+
+    //The quantile of the normal distribution for a confidence of 95%
+    private final static double Z_95 = 1.96;
+    private final static double NANOSECONDS_PER_SECOND = 1e9, NANOSECONDS_PER_MILLISECOND = 1e6;
+    private final static double[] PERCENTILES = {50, 90, 99, 100};
+
+    /**
+     * Private constructor of Tournament
+     */
+    private Tournament() {}
+
+    /**
+     * Runs the tournament
+     * @param args (String[]): the players and the options (see the description of the class)
+     * @throws InterruptedException: if the thread is interrupted while waiting for the games
+     * @throws ExecutionException: if a game fails
+     * @throws IOException: if the log can not be written
+     */
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+        List<String> specs = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (int i=0; i<args.length; ++i) {
+            if (args[i].startsWith("-") && i+1 < args.length) {
+                options.put(args[i], args[++i]);
+            }
+            else {
+                specs.add(args[i]);
+            }
+        }
+
+        int games, threads;
+        long seed;
+        try {
+            games = Integer.parseInt(options.getOrDefault("-games", String.valueOf(DEFAULT_GAMES)));
+            threads = Integer.parseInt(options.getOrDefault("-threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            seed = Long.parseLong(options.getOrDefault("-seed", String.valueOf(DEFAULT_SEED)));
+            if (specs.size() != PlayerId.COUNT || games <= 0 || threads <= 0) {
+                throw new IllegalArgumentException();
+            }
+            for (String spec: specs) {
+                createPlayer(spec, PlayerId.PLAYER_1, 0);
+            }
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("Usage: Tournament player1 player2 player3 player4 [-games n] [-threads n] [-seed n] [-log file]");
+            System.err.println("where a player is r (random), s:iterations (MCTS), i:iterations (MCTS with information sets) or t:iterations (MCTS with a transposition table)");
+            if (e.getMessage() != null) {
+                System.err.println(e.getMessage());
+            }
+            System.exit(RETURN_EXIT_VALUE);
+            return;
+        }
+
+        GameLog log = options.containsKey("-log") ? new GameLog(Paths.get(options.get("-log"))) : null;
+        Random rng = new Random(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<GameResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int g=0; g<games; ++g) {
+            long gameSeed = rng.nextLong();
+            futures.add(pool.submit(() -> play(specs, gameSeed, log)));
+        }
+        List<GameResult> results = new ArrayList<>();
+        for (Future<GameResult> f: futures) {
+            results.add(f.get());
+        }
+        long time = System.nanoTime()-start;
+        pool.shutdown();
+        if (log != null) {
+            log.close();
+        }
+
+        report(specs, results, time, threads);
+    }
+
+    /**
+     * Plays a game between the given players
+     * @param specs (List<String>): the description of the players, in the order of their identities
+     * @param seed (long): the seed of the game and of the players
+     * @param log (GameLog): the log in which the game is written, null if it is not logged
+     * @return (GameResult): the result of the game
+     */
+    private static GameResult play(List<String> specs, long seed, GameLog log) {
+        Random rng = new Random(seed);
+        Map<PlayerId, Player> players = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, String> names = new EnumMap<>(PlayerId.class);
+        Map<PlayerId, Boolean> help = new EnumMap<>(PlayerId.class);
+        TimedPlayer[] timedPlayers = new TimedPlayer[PlayerId.COUNT];
+        for (PlayerId id: PlayerId.ALL) {
+            timedPlayers[id.ordinal()] = new TimedPlayer(createPlayer(specs.get(id.ordinal()), id, rng.nextLong()));
+            players.put(id, timedPlayers[id.ordinal()]);
+            names.put(id, id.name());
+            help.put(id, false);
+        }
+
+        JassGame game = new JassGame(rng.nextLong(), players, names, help);
+        if (log != null) {
+            game.logTo(log);
+        }
+        while (!game.isGameOver()) {
+            game.advanceToEndOfNextTrick();
+        }
+
+        long[][] latencies = new long[PlayerId.COUNT][];
+        for (int p=0; p<PlayerId.COUNT; ++p) {
+            latencies[p] = timedPlayers[p].latencies();
+        }
+        return new GameResult(timedPlayers[0].winningTeam, timedPlayers[0].score, latencies);
+    }
+
+    /**
+     * Creates the player of the given description
+     * @param spec (String): the description of the player (r, s:iterations, i:iterations or t:iterations)
+     * @param id (PlayerId): the identity of the player
+     * @param seed (long): the seed of the player
+     * @throws IllegalArgumentException: if the description is invalid
+     * @return (Player): the player
+     */
+    private static Player createPlayer(String spec, PlayerId id, long seed) {
+        String[] parts = StringSerializer.split(spec, ":");
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Error: too many arguments for the player: " + spec);
+        }
+        int iterations = DEFAULT_ITERATIONS;
+        if (parts.length == 2) {
+            try {
+                iterations = Integer.parseInt(parts[1]);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Error: invalid number of iterations: " + spec);
+            }
+        }
+        switch (parts[0]) {
+        case "r":
+            return new RandomPlayer(seed);
+        case "s":
+            return new MctsPlayer(id, seed, iterations);
+        case "i":
+            return MctsPlayer.withInformationSets(id, seed, iterations);
+        case "t":
+            return MctsPlayer.withTranspositionTable(id, seed, iterations, TABLE_ENTRIES);
+        default:
+            throw new IllegalArgumentException("Error: invalid player type: " + spec);
+        }
+    }
+
+    /**
+     * Prints the results of the tournament
+     * @param specs (List<String>): the description of the players
+     * @param results (List<GameResult>): the results of the games
+     * @param time (long): the duration of the tournament, in nanoseconds
+     * @param threads (int): the number of threads used
+     */
+    private static void report(List<String> specs, List<GameResult> results, long time, int threads) {
+        int games = results.size();
+        System.out.println(String.format("%d games in %.1f s on %d threads: %.2f games/s", games, time/NANOSECONDS_PER_SECOND,
+                threads, games*NANOSECONDS_PER_SECOND/time));
+
+        for (TeamId team: TeamId.ALL) {
+            int wins = 0;
+            long points = 0;
+            for (GameResult r: results) {
+                wins += r.winningTeam == team ? 1 : 0;
+                points += r.score.totalPoints(team);
+            }
+            double[] interval = wilsonInterval(wins, games);
+            String players = specs.get(team.ordinal()) + ", " + specs.get(team.ordinal()+TeamId.COUNT);
+            System.out.println(String.format("%s (%s): %d wins, %.1f%% [%.1f%%, %.1f%%], %.1f points per game", team, players,
+                    wins, 100.0*wins/games, 100*interval[0], 100*interval[1], (double)points/games));
+        }
+
+        StringBuilder header = new StringBuilder(String.format("%-20s %8s", "Time per move (ms)", "moves"));
+        for (double p: PERCENTILES) {
+            header.append(String.format(" %9s", p == 100 ? "max" : "p" + (int)p));
+        }
+        System.out.println(header);
+        for (PlayerId id: PlayerId.ALL) {
+            long[] latencies = results.stream().flatMapToLong(r -> Arrays.stream(r.latencies[id.ordinal()])).sorted().toArray();
+            StringBuilder line = new StringBuilder(String.format("%-20s %8d", id + " " + specs.get(id.ordinal()), latencies.length));
+            for (double p: PERCENTILES) {
+                line.append(String.format(" %9.3f", percentile(latencies, p)/NANOSECONDS_PER_MILLISECOND));
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Gives the 95% confidence interval of a proportion (Wilson score interval, which stays within [0, 1] even
+     * with few games or a proportion close to 0 or 1)
+     * @param successes (int): the number of successes
+     * @param trials (int): the number of trials
+     * @return (double[]): the lower and upper bounds of the interval
+     */
+    private static double[] wilsonInterval(int successes, int trials) {
+        double p = (double)successes/trials;
+        double z2 = Z_95*Z_95;
+        double denominator = 1 + z2/trials;
+        double center = (p + z2/(2*trials))/denominator;
+        double halfWidth = Z_95*Math.sqrt(p*(1-p)/trials + z2/(4.0*trials*trials))/denominator;
+        return new double[] {center-halfWidth, center+halfWidth};
+    }
+
+    /**
+     * Gives the given percentile of the sorted values (nearest rank)
+     * @param sorted (long[]): the values, in increasing order
+     * @param percent (double): the percentile, between 0 and 100
+     * @return (long): the value of the percentile, 0 if there is no value
+     */
+    private static long percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int)Math.ceil(percent/100*sorted.length);
+        return sorted[Math.max(0, rank-1)];
+    }
+
+    /**
+     * Represent the result of a game: the winning team, the final score and the time taken by each player for each card
+     */
+    private static final class GameResult {
+
+        private final TeamId winningTeam;
+        private final Score score;
+        private final long[][] latencies;
+
+        /**
+         * Constructor of GameResult
+         * @param winningTeam (TeamId): the winning team
+         * @param score (Score): the final score
+         * @param latencies (long[][]): the times taken to choose each card, in nanoseconds, indexed by the ordinal of the players
+         */
+        private GameResult(TeamId winningTeam, Score score, long[][] latencies) {
+            this.winningTeam = winningTeam;
+            this.score = score;
+            this.latencies = latencies;
+        }
+    }
+
+    /**
+     * Represent a player that measures the time taken by the underlying player to choose each card, and keeps
+     * the last score and the winning team it receives
+     */
+    private static final class TimedPlayer implements Player {
+
+        private final Player underlyingPlayer;
+        private long[] latencies = new long[64];
+        private int moves;
+        private Score score = Score.INITIAL;
+        private TeamId winningTeam;
+
+        /**
+         * Constructor of TimedPlayer
+         * @param underlyingPlayer (Player): the player that plays
+         */
+        private TimedPlayer(Player underlyingPlayer) {
+            this.underlyingPlayer = underlyingPlayer;
+        }
+
+        /**
+         * Gives the times taken to choose the cards
+         * @return (long[]): the times, in nanoseconds, in the order of the cards
+         */
+        private long[] latencies() {
+            return Arrays.copyOf(latencies, moves);
+        }
+
+        /**
+         * Calls the method cardToPlay of the underlying player and measures its duration
+         */
+        @Override
+        public Card cardToPlay(TurnState state, CardSet hand) {
+            long start = System.nanoTime();
+            Card card = underlyingPlayer.cardToPlay(state, hand);
+            long latency = System.nanoTime()-start;
+            if (moves == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2*moves);
+            }
+            latencies[moves++] = latency;
+            return card;
+        }
+
+        /**
+         * Calls the method setPlayers of the underlying player
+         */
+        @Override
+        public void setPlayers(PlayerId ownId, Map<PlayerId, String> playerNames, Map<PlayerId, Boolean> helpMap) {
+            underlyingPlayer.setPlayers(ownId, playerNames, helpMap);
+        }
+
+        /**
+         * Calls the method updateHand of the underlying player
+         */
+        @Override
+        public void updateHand(CardSet newHand) {
+            underlyingPlayer.updateHand(newHand);
+        }
+
+        /**
+         * Calls the method setTrump of the underlying player
+         */
+        @Override
+        public void setTrump(Color trump) {
+            underlyingPlayer.setTrump(trump);
+        }
+
+        /**
+         * Calls the method updateTrick of the underlying player
+         */
+        @Override
+        public void updateTrick(Trick newTrick) {
+            underlyingPlayer.updateTrick(newTrick);
+        }
+
+        /**
+         * Keeps the score and calls the method updateScore of the underlying player
+         */
+        @Override
+        public void updateScore(Score score) {
+            this.score = score;
+            underlyingPlayer.updateScore(score);
+        }
+
+        /**
+         * Keeps the winning team and calls the method setWinningTeam of the underlying player
+         */
+        @Override
+        public void setWinningTeam(TeamId winningTeam) {
+            this.winningTeam = winningTeam;
+            underlyingPlayer.setWinningTeam(winningTeam);
+        }
+    }
+}
@@ -35,13 +35,10 @@ public final class Bits32 {
         if (size==0) {
             return 0;
         }
-        int mask = 0;
-
-        for (int i=0; i<size; ++i) {
-            int temp=1 << (start+i);
-            mask = mask | temp;     
+        if (size==Integer.SIZE) {
+            return -1;
         }
-        return mask;   
+        return ((1 << size)-1) << start;
     }
 
     /**
@@ -189,7 +186,7 @@ public final class Bits32 {
 
         Preconditions.checkArgument(s>=1 && s<Integer.SIZE);
 
-        double maxValueWithSBits = Math.pow(2, s);
+        long maxValueWithSBits = 1L << s;
 
         Preconditions.checkArgument(v<maxValueWithSBits);
     }
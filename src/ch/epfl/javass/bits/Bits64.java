@@ -27,15 +27,10 @@ public final class Bits64 {
         if (size==0) {
             return 0;
         }
-
-        long mask = 0L;
-
-        for (int i=0; i<size; ++i) {
-            long temp=1L << (start+i);
-            mask = mask | temp;     
+        if (size==Long.SIZE) {
+            return -1L;
         }
-
-        return mask;
+        return ((1L << size)-1) << start;
     }
 
 
@@ -393,8 +393,7 @@ public class GraphicalPlayer  {
     private static ObservableMap<Card, Image> createImageCardMap() {
         ObservableMap <Card, Image> map = FXCollections.observableHashMap();
 
-        for (int i=0; i<CardSet.ALL_CARDS.size(); ++i) {
-            Card c = CardSet.ALL_CARDS.get(i);
+        for (Card c: CardSet.ALL_CARDS) {
             map.put(c, new Image("/card_"+c.color().ordinal()+"_"+c.rank().ordinal()+"_240.png"));
         }
         return map;        
@@ -407,8 +406,7 @@ public class GraphicalPlayer  {
     private static ObservableMap<Card, Image> createImageHandCardMap() {
         ObservableMap <Card, Image> map = FXCollections.observableHashMap();
 
-        for (int i=0; i<CardSet.ALL_CARDS.size(); ++i) {
-            Card c = CardSet.ALL_CARDS.get(i);
+        for (Card c: CardSet.ALL_CARDS) {
             map.put(c, new Image("/card_"+c.color().ordinal()+"_"+c.rank().ordinal()+"_160.png"));
         }
         return map;        
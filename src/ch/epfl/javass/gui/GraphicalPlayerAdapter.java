@@ -1,8 +1,12 @@
 package ch.epfl.javass.gui;
 
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ch.epfl.javass.jass.Card;
 import ch.epfl.javass.jass.Card.Color;
@@ -32,11 +36,17 @@ public class GraphicalPlayerAdapter implements Player {
     private ArrayBlockingQueue<Card> comQueue;
     private ObservableMap <Card,String> helpHandMap;
     private boolean help;
+    private ExecutorService helpExecutor;
+    private Future<?> helpSearch;
+    private volatile int helpRequest;
     
 
     /** The capacity of the queue that communicate the card to play between the two thread **/
     private final static int ARRAY_CAPACITY = 1;
 
+    /** The number of iterations of the search of the help between two updates of the percentages **/
+    private final static int HELP_REPORT_INTERVAL = 5000;
+
     /**
      * Constructor of the class GraphicalPlayerAdapter 
      */
@@ -48,7 +58,14 @@ public class GraphicalPlayerAdapter implements Player {
         help=false;
         
         helpHandMap= FXCollections.observableHashMap();
-        
+
+        //The help is computed by one low priority thread, so that the search never blocks the interface
+        helpExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "help");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
     }
 
     /**
@@ -133,21 +150,52 @@ public class GraphicalPlayerAdapter implements Player {
      */
     @Override
     public void setHelp(TurnState state, CardSet hand, PlayerId id) {
-        
+        cancelHelp();
+        int request = helpRequest;
+
         Platform.runLater(() -> {
         helpHandMap.clear();
-        for(int i=0; i<hand.size();++i) {
-            helpHandMap.put(hand.get(i), null);
+        for(Card c: hand) {
+            helpHandMap.put(c, null);
         }
+    });
 
+        //The percentages are shown as the search progresses, the search being computed off the JavaFX thread
         if(help) {
-            Map<Card,String> results = Helpers.needHelp(state, hand, id);
-            for (Map.Entry<Card, String> e: results.entrySet()) {
-                helpHandMap.put(e.getKey(), String.format("%.5s", e.getValue()));
+            helpSearch = helpExecutor.submit(() -> {
+                Map<Card,String> results = Helpers.needHelp(state, hand, id, HELP_REPORT_INTERVAL, partialResults -> showHelp(request, partialResults));
+                showHelp(request, results);
+            });
+        }
+    }
+
+    /**
+     * Shows the given percentages of recommendation, if they are still the ones of the current help
+     * @param request (int): the number of the help the percentages come from
+     * @param results (Map<Card, String>): the percentage of recommendation of each card
+     */
+    private void showHelp(int request, Map<Card, String> results) {
+        Map<Card, String> formatted = new HashMap<>();
+        for (Map.Entry<Card, String> e: results.entrySet()) {
+            formatted.put(e.getKey(), String.format("%.5s", e.getValue()));
+        }
+
+        Platform.runLater(() -> {
+            if (request == helpRequest) {
+                helpHandMap.putAll(formatted);
             }
+        });
+    }
+
+    /**
+     * Interrupts the search of the help in progress and prevents its results from being shown
+     */
+    private void cancelHelp() {
+        ++helpRequest;
+        if (helpSearch != null) {
+            helpSearch.cancel(true);
+            helpSearch = null;
         }
-    });
-        
     }
     
     /**
@@ -155,7 +203,8 @@ public class GraphicalPlayerAdapter implements Player {
      */
     @Override
     public void resetHelp() {
-        helpHandMap.clear();  
+        cancelHelp();
+        Platform.runLater(() -> { helpHandMap.clear(); });
     }
 }
 
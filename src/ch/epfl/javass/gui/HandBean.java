@@ -74,8 +74,8 @@ public final class HandBean {
      */
     public void setPlayableCards(CardSet newPlayableCards) {
         playableCards.clear();
-        for (int i=0; i<newPlayableCards.size();++i) {
-            playableCards.add(newPlayableCards.get(i));
+        for (Card c: newPlayableCards) {
+            playableCards.add(c);
         }
     }
 }
@@ -14,6 +14,10 @@ public final class Card {
     //Packed representation of the card
     private final int pcknum;
 
+    //The cards of the game, indexed by their packed representation (null for the invalid ones): no card is created
+    //after the initialization of the class, the same instance being returned for the same card
+    private static final Card[] CARDS = createCards();
+
 
     /**
      * Constructor of Card
@@ -33,7 +37,7 @@ public final class Card {
      */
     public static Card of(Color c, Rank r) {
 
-        return new Card(PackedCard.pack(c, r));
+        return CARDS[PackedCard.pack(c, r)];
     }
 
 
@@ -46,7 +50,22 @@ public final class Card {
     public static Card ofPacked(int packed) {
         Preconditions.checkArgument(PackedCard.isValid(packed));
 
-        return new Card(packed); 
+        return CARDS[packed]; 
+    }
+
+    /**
+     * Creates the array of all the cards, indexed by their packed representation
+     * @return (Card[]): the array of the cards
+     */
+    private static Card[] createCards() {
+        Card[] cards = new Card[PackedCard.INVALID+1];
+        for (Color c: Color.ALL) {
+            for (Rank r: Rank.ALL) {
+                int packed = PackedCard.pack(c, r);
+                cards[packed] = new Card(packed);
+            }
+        }
+        return cards;
     }
 
 
@@ -1,13 +1,15 @@
 package ch.epfl.javass.jass;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 import ch.epfl.javass.Preconditions;
 
 /**
  * Class which represents a set of cards in the game
  */
-public final class CardSet {
+public final class CardSet implements Iterable<Card> {
 
     //The packed representation of the set of card
     private final long pkCardSet;
@@ -18,6 +20,13 @@ public final class CardSet {
     //Full set of every cards
     public static final CardSet ALL_CARDS = new CardSet(PackedCardSet.ALL_CARDS);
 
+    //The sets already created, each one at a place given by a hash of its packed representation: the set is
+    //taken from there when it is asked again (a new set replaces the one at its place). The sets being
+    //immutable, they are shared between the threads without synchronization
+    private static final int CACHE_BITS = 12;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final CardSet[] CACHE = new CardSet[1 << CACHE_BITS];
+
     /**
      * Constructor of CardSet
      * @param pkCardSet (long): packed representation of the set of cards
@@ -36,7 +45,7 @@ public final class CardSet {
         for(Card theseCards : cards) {
             set = PackedCardSet.add(set, theseCards.packed());
         }
-        return new CardSet(set);
+        return canonical(set);
     }
 
     /**
@@ -46,8 +55,37 @@ public final class CardSet {
      * @return (CardSet): the set corresponding to the given packed representation
      */
     public static CardSet ofPacked(long packed) {
+        CardSet cached = CACHE[cacheIndex(packed)];
+        if (cached != null && cached.pkCardSet == packed) {
+            return cached;
+        }
         Preconditions.checkArgument(PackedCardSet.isValid(packed));
-        return new CardSet(packed);
+        return canonical(packed);
+    }
+
+    /**
+     * Gives the set of the given packed representation, taken from the cache if it is there, and puts it
+     * in the cache otherwise
+     * @param pkCardSet (long): the packed representation of the set (valid)
+     * @return (CardSet): the set of cards
+     */
+    private static CardSet canonical(long pkCardSet) {
+        int index = cacheIndex(pkCardSet);
+        CardSet set = CACHE[index];
+        if (set == null || set.pkCardSet != pkCardSet) {
+            set = new CardSet(pkCardSet);
+            CACHE[index] = set;
+        }
+        return set;
+    }
+
+    /**
+     * Gives the place in the cache of the set of the given packed representation
+     * @param pkCardSet (long): the packed representation of the set
+     * @return (int): the index in the cache
+     */
+    private static int cacheIndex(long pkCardSet) {
+        return (int)((pkCardSet * HASH_MULTIPLIER) >>> (Long.SIZE-CACHE_BITS));
     }
 
     /**
@@ -83,13 +121,33 @@ public final class CardSet {
         return Card.ofPacked(PackedCardSet.get(pkCardSet, index));
     }
 
+    /**
+     * Gives an iterator over the cards of the set, in increasing order (faster than calling get for each index)
+     * @return (Iterator<Card>): the iterator over the cards of the set
+     */
+    @Override
+    public Iterator<Card> iterator() {
+        PrimitiveIterator.OfInt cards = PackedCardSet.iterator(pkCardSet);
+        return new Iterator<Card>() {
+            @Override
+            public boolean hasNext() {
+                return cards.hasNext();
+            }
+
+            @Override
+            public Card next() {
+                return Card.ofPacked(cards.nextInt());
+            }
+        };
+    }
+
     /**
      * Adds, in the card set, the specified card
      * @param card (Card): the card we want to add
      * @return (CardSet): the set of cards with the wanted card added in
      */
     public CardSet add(Card card) {
-        return new CardSet(PackedCardSet.add(pkCardSet, card.packed()));
+        return canonical(PackedCardSet.add(pkCardSet, card.packed()));
     }
 
     /**
@@ -98,7 +156,7 @@ public final class CardSet {
      * @return (CardSet): the set of cards with the wanted card removed
      */
     public CardSet remove(Card card) {
-        return new CardSet(PackedCardSet.remove(pkCardSet, card.packed()));
+        return canonical(PackedCardSet.remove(pkCardSet, card.packed()));
     }
 
     /**
@@ -115,7 +173,7 @@ public final class CardSet {
      * @return (CardSet): all the cards not contained in the set of cards
      */
     public CardSet complement() {
-        return new CardSet(PackedCardSet.complement(pkCardSet));
+        return canonical(PackedCardSet.complement(pkCardSet));
     }
 
     /**
@@ -124,7 +182,7 @@ public final class CardSet {
      * @return (CardSet): a set that contains all the cards of the card set and all the cards of "that" set
      */
     public CardSet union(CardSet that) {
-        return new CardSet(PackedCardSet.union(pkCardSet, that.packed()));
+        return canonical(PackedCardSet.union(pkCardSet, that.packed()));
     }
 
     /**
@@ -133,7 +191,7 @@ public final class CardSet {
      * @return (CardSet) the intersection of the two sets of cards
      */
     public CardSet intersection(CardSet that) {
-        return new CardSet(PackedCardSet.intersection(pkCardSet, that.packed()));
+        return canonical(PackedCardSet.intersection(pkCardSet, that.packed()));
     }
 
     /**
@@ -142,7 +200,7 @@ public final class CardSet {
      * @return (CardSet): the set of cards contained in the current set but not in the other one
      */
     public CardSet difference(CardSet that) {
-        return new CardSet(PackedCardSet.difference(pkCardSet,that.packed()));
+        return canonical(PackedCardSet.difference(pkCardSet,that.packed()));
     }
 
     /**
@@ -151,7 +209,7 @@ public final class CardSet {
      * @return (CardSet): the subset which contains all the cards of color "color"
      */
     public CardSet subsetOfColor(Card.Color color) {
-        return new CardSet(PackedCardSet.subsetOfColor(pkCardSet, color));
+        return canonical(PackedCardSet.subsetOfColor(pkCardSet, color));
     }
 
     /**
@@ -0,0 +1,239 @@
+package ch.epfl.javass.jass;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * Class which represents a player that takes at most a certain time to play: the underlying player chooses its card
+ * on another thread and, if it has not chosen it before the deadline, the card of a fallback player (a fast one, like
+ * a RandomPlayer or a MctsPlayer with few iterations) is played instead and the timeout is counted.
+ * The underlying player is not interrupted: its late card is ignored, and while it has not given it, it is not asked
+ * for another one (the fallback player then plays, unless the late card arrives before the deadline of the next move).
+ * All the calls to the underlying player are made one after the other on its own thread: the notifications given
+ * while its card is late wait for it, the underlying player (a MctsPlayer for instance) not being thread-safe
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class DeadlinePlayer implements Player {
+
+    private final Player underlyingPlayer;
+    private final Player fallbackPlayer;
+    private final double maxTime;
+
+    //The choice of the underlying player not finished yet (its card being late), null if there is none
+    private Future<Card> lateCard;
+
+    //The first error of a notification of the underlying player, rethrown on the game thread at the next move
+    private volatile RuntimeException failure;
+
+    private int moves;
+    private int timeouts;
+
+    private final static double NANOSECONDS_PER_SECOND = 1e9;
+    private final static long IDLE_THREAD_SECONDS = 1;
+
+    //The thread on which all the calls to the underlying player are made, in order (it stops when it is idle)
+    private final ExecutorService underlyingThread;
+
+    /**
+     * Constructor of DeadlinePlayer
+     * @param underlyingPlayer (Player): the player that play
+     * @param fallbackPlayer (Player): the player that play when the underlying player is too slow
+     * @param maxTime (double): the maximum time that the underlying player has to play, in seconds
+     */
+    public DeadlinePlayer(Player underlyingPlayer, Player fallbackPlayer, double maxTime) {
+        Preconditions.checkArgument(maxTime > 0);
+        this.underlyingPlayer=underlyingPlayer;
+        this.fallbackPlayer=fallbackPlayer;
+        this.maxTime=maxTime;
+        ThreadPoolExecutor thread = new ThreadPoolExecutor(1, 1, IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "DeadlinePlayer");
+            t.setDaemon(true);
+            return t;
+        });
+        thread.allowCoreThreadTimeOut(true);
+        this.underlyingThread=thread;
+    }
+
+    /**
+     * Gives the number of cards asked to the player
+     * @return (int): the number of moves
+     */
+    public synchronized int moves() {
+        return moves;
+    }
+
+    /**
+     * Gives the number of cards played by the fallback player because the underlying player was too slow
+     * @return (int): the number of timeouts
+     */
+    public synchronized int timeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Calls the method cardToPlay of the underlying player, with maxTime seconds as deadline
+     */
+    @Override
+    public Card cardToPlay(TurnState state, CardSet hand) {
+        return cardToPlay(state, hand, System.nanoTime()+(long)(maxTime*NANOSECONDS_PER_SECOND));
+    }
+
+    /**
+     * Calls the method cardToPlay of the underlying player and returns its card if it is chosen before the deadline
+     * (the given one, or the end of maxTime seconds if it is earlier), the card of the fallback player otherwise
+     */
+    @Override
+    public synchronized Card cardToPlay(TurnState state, CardSet hand, long deadline) {
+        long end = Math.min(deadline, System.nanoTime()+(long)(maxTime*NANOSECONDS_PER_SECOND));
+        ++moves;
+        throwFailure();
+        try {
+            //The late card of the previous move is waited for, the underlying player choosing one card at a time
+            if (lateCard != null) {
+                awaitCard(lateCard, end);
+                lateCard = null;
+            }
+            Future<Card> card = underlyingThread.submit(() -> underlyingPlayer.cardToPlay(state, hand, end));
+            lateCard = card;
+            Card c = awaitCard(card, end);
+            lateCard = null;
+            return c;
+        }
+        catch (TimeoutException e) {
+            ++timeouts;
+            return fallbackPlayer.cardToPlay(state, hand);
+        }
+    }
+
+    /**
+     * Calls the method setPlayers of the underlying player (on its thread) and of the fallback player
+     */
+    @Override
+    public void setPlayers(PlayerId ownId, Map<PlayerId, String> playerNames,  Map<PlayerId, Boolean> helpMap) {
+        forward(() -> underlyingPlayer.setPlayers(ownId, playerNames, helpMap));
+        fallbackPlayer.setPlayers(ownId, playerNames, helpMap);
+    }
+
+    /**
+     * Calls the method updateHand of the underlying player (on its thread) and of the fallback player
+     */
+    @Override
+    public void updateHand(CardSet newHand) {
+        forward(() -> underlyingPlayer.updateHand(newHand));
+        fallbackPlayer.updateHand(newHand);
+    }
+
+    /**
+     * Calls the method setTrump of the underlying player (on its thread) and of the fallback player
+     */
+    @Override
+    public void setTrump(Color trump) {
+        forward(() -> underlyingPlayer.setTrump(trump));
+        fallbackPlayer.setTrump(trump);
+    }
+
+    /**
+     * Calls the method updateTrick of the underlying player (on its thread) and of the fallback player
+     */
+    @Override
+    public void updateTrick(Trick newTrick) {
+        forward(() -> underlyingPlayer.updateTrick(newTrick));
+        fallbackPlayer.updateTrick(newTrick);
+    }
+
+    /**
+     * Calls the method setWinningTeam of the underlying player (on its thread) and of the fallback player
+     */
+    @Override
+    public void setWinningTeam(TeamId winningTeam) {
+        forward(() -> underlyingPlayer.setWinningTeam(winningTeam));
+        fallbackPlayer.setWinningTeam(winningTeam);
+    }
+
+    /**
+     * Calls the method updateScore of the underlying player (on its thread) and of the fallback player
+     */
+    @Override
+    public void updateScore(Score score) {
+        forward(() -> underlyingPlayer.updateScore(score));
+        fallbackPlayer.updateScore(score);
+    }
+
+    /**
+     * Calls the method setHelp of the underlying player (on its thread)
+     */
+    @Override
+    public void setHelp(TurnState state, CardSet hand, PlayerId id) {
+        forward(() -> underlyingPlayer.setHelp(state, hand, id));
+    }
+
+    /**
+     * Calls the method resetHelp of the underlying player (on its thread)
+     */
+    @Override
+    public void resetHelp() {
+        forward(underlyingPlayer::resetHelp);
+    }
+
+    /**
+     * Makes the given call to the underlying player on its thread, after the calls made before (a late card included),
+     * without waiting for it
+     * @param call (Runnable): the call
+     */
+    private void forward(Runnable call) {
+        underlyingThread.execute(() -> {
+            if (failure == null) {
+                try {
+                    call.run();
+                }
+                catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+        });
+    }
+
+    /**
+     * Rethrows the error of a notification of the underlying player if there was one
+     */
+    private void throwFailure() {
+        RuntimeException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the card chosen by the underlying player until the given deadline
+     * @param card (Future<Card>): the card being chosen
+     * @param deadline (long): the end of the wait (as given by System.nanoTime())
+     * @return (Card): the card
+     * @throws TimeoutException if the card has not been chosen before the deadline
+     */
+    private static Card awaitCard(Future<Card> card, long deadline) throws TimeoutException {
+        try {
+            return card.get(deadline-System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        catch (ExecutionException e) {
+            //The error of the underlying player (a lost connection for instance) stops the game as without deadline
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new Error(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ch.epfl.javass.jass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+
+/**
+ * Class which represents an append-only log of games (see JassGame.logTo), read by GameLogReplay.
+ * The file is a sequence of records of RECORD_SIZE bytes (big-endian), so that the record of index i is at the
+ * offset i*RECORD_SIZE and the file can be memory-mapped. Every record contains the seed of its game, the records
+ * of several games played at the same time being mixed:
+ *   kind (1 byte), player (1 byte), argument (1 byte), unused (1 byte), packed trick (4 bytes), seed (8 bytes),
+ *   4 fields (8 bytes each)
+ * The first record is the header (its seed field is MAGIC and its trick field is VERSION), then:
+ *   GAME: the start of a game, whose seed is the one of the JassGame
+ *   DEAL: the start of a turn, the player being the first player, the argument the trump, the trick the first trick
+ *         and the fields the hands of the 4 players
+ *   MOVE: a card played, the player being the one playing, the argument the packed card, the trick the one before the
+ *         card and the fields the packed score, the packed unplayed cards, the hand of the player and the trick after
+ *         the card (so that a record gives the whole state of the turn before the move, and the move)
+ *   END: the end of a game, the argument being the winning team and the first field the packed score
+ * The records are written by blocks (at each flush, JassGame flushing at the end of each trick), and a record
+ * partially written (if the program stopped while writing) is removed when the log is opened again
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class GameLog implements AutoCloseable {
+
+    /** The size of a record, in bytes **/
+    public static final int RECORD_SIZE = 48;
+
+    /** The kinds of records **/
+    public static final byte HEADER = 0, GAME = 1, DEAL = 2, MOVE = 3, END = 4;
+
+    /** The identification of the file, and the version of the format **/
+    public static final long MAGIC = 0x4A4153534C4F4731L; //"JASSLOG1"
+    public static final int VERSION = 1;
+
+    //The offsets of the components of a record
+    static final int KIND = 0, PLAYER = 1, ARGUMENT = 2, TRICK = 4, SEED = 8, FIELDS = 16;
+    static final int FIELD_COUNT = 4;
+
+    private final static int BUFFER_RECORDS = 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS*RECORD_SIZE);
+    private long records;
+
+    /**
+     * Constructor of GameLog, which creates the file if it does not exist and otherwise appends the records at its end
+     * @param path (Path): the file of the log
+     * @throws IOException if the file can not be opened, or if it is not a log of games
+     */
+    public GameLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            records = channel.size()/RECORD_SIZE;
+            if (records == 0) {
+                channel.truncate(0);
+                append(HEADER, 0, 0, VERSION, MAGIC, 0, 0, 0, 0);
+                flush();
+            }
+            else {
+                ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+                channel.read(header, 0);
+                if (header.get(KIND) != HEADER || header.getLong(SEED) != MAGIC || header.getInt(TRICK) != VERSION) {
+                    throw new IOException("Not a log of games: "+path);
+                }
+                //The end of a record partially written is removed
+                channel.truncate(records*RECORD_SIZE);
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives the number of records of the log, the header included
+     * @return (long): the number of records
+     */
+    public synchronized long records() {
+        return records;
+    }
+
+    /**
+     * Logs the start of a game
+     * @param seed (long): the seed of the game
+     */
+    public synchronized void game(long seed) {
+        append(GAME, 0, 0, PackedTrick.INVALID, seed, 0, 0, 0, 0);
+    }
+
+    /**
+     * Logs the start of a turn
+     * @param seed (long): the seed of the game
+     * @param state (TurnState): the initial state of the turn
+     * @param hands (Map<PlayerId, CardSet>): the hands dealt to the players
+     */
+    public synchronized void deal(long seed, TurnState state, Map<PlayerId, CardSet> hands) {
+        Trick trick = state.trick();
+        append(DEAL, trick.player(0).ordinal(), trick.trump().ordinal(), trick.packed(), seed,
+                hands.get(PlayerId.PLAYER_1).packed(), hands.get(PlayerId.PLAYER_2).packed(),
+                hands.get(PlayerId.PLAYER_3).packed(), hands.get(PlayerId.PLAYER_4).packed());
+    }
+
+    /**
+     * Logs a card played
+     * @param seed (long): the seed of the game
+     * @param state (TurnState): the state of the turn before the card
+     * @param hand (CardSet): the hand of the player before the card
+     * @param card (Card): the card played
+     * @param trickAfter (Trick): the trick after the card
+     */
+    public synchronized void move(long seed, TurnState state, CardSet hand, Card card, Trick trickAfter) {
+        append(MOVE, state.nextPlayer().ordinal(), card.packed(), state.packedTrick(), seed,
+                state.packedScore(), state.packedUnplayedCards(), hand.packed(), trickAfter.packed());
+    }
+
+    /**
+     * Logs the end of a game
+     * @param seed (long): the seed of the game
+     * @param winningTeam (TeamId): the team which has won
+     * @param score (Score): the final score
+     */
+    public synchronized void end(long seed, TeamId winningTeam, Score score) {
+        append(END, 0, winningTeam.ordinal(), PackedTrick.INVALID, seed, score.packed(), 0, 0, 0);
+    }
+
+    /**
+     * Writes the records not written yet at the end of the file
+     * @throws UncheckedIOException if I/O operations are interrupted
+     */
+    public synchronized void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, channel.size());
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Writes the records not written yet and closes the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Adds a record to the ones not written yet, writing them if the buffer is full
+     * @param kind (byte): the kind of record
+     * @param player (int): the ordinal of the player
+     * @param argument (int): the argument (card, trump or team)
+     * @param trick (int): the packed trick
+     * @param seed (long): the seed of the game
+     * @param f0 (long): the first field
+     * @param f1 (long): the second field
+     * @param f2 (long): the third field
+     * @param f3 (long): the fourth field
+     */
+    private void append(byte kind, int player, int argument, int trick, long seed, long f0, long f1, long f2, long f3) {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put(kind).put((byte)player).put((byte)argument).put((byte)0).putInt(trick).putLong(seed)
+        .putLong(f0).putLong(f1).putLong(f2).putLong(f3);
+        ++records;
+    }
+}
@@ -0,0 +1,272 @@
+package ch.epfl.javass.jass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * Class which represents the reading of a log of games (see GameLog): the file is memory-mapped and any record is
+ * read directly from its index, so that the positions logged (the state of the turn and the hand of the player of
+ * each MOVE record) can be given to new players without replaying the games.
+ * The records written after the opening of the replay are not seen
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class GameLogReplay implements AutoCloseable {
+
+    //The number of records of a mapped segment of the file (a mapping being limited to 2 GB)
+    private final static int SEGMENT_RECORDS = 1 << 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long records;
+
+    /**
+     * Constructor of GameLogReplay, which maps the file
+     * @param path (Path): the file of the log
+     * @throws IOException if the file can not be read, or if it is not a log of games
+     */
+    public GameLogReplay(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            records = channel.size()/GameLog.RECORD_SIZE;
+            segments = new MappedByteBuffer[(int)((records+SEGMENT_RECORDS-1)/SEGMENT_RECORDS)];
+            for (int i=0; i<segments.length; ++i) {
+                long first = (long)i*SEGMENT_RECORDS;
+                long size = Math.min(SEGMENT_RECORDS, records-first)*GameLog.RECORD_SIZE;
+                segments[i] = channel.map(MapMode.READ_ONLY, first*GameLog.RECORD_SIZE, size);
+            }
+            if (records == 0 || kind(0) != GameLog.HEADER || seed(0) != GameLog.MAGIC
+                    || segment(0).getInt(GameLog.TRICK) != GameLog.VERSION) {
+                throw new IOException("Not a log of games: "+path);
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives the number of records of the log, the header included
+     * @return (long): the number of records
+     */
+    public long records() {
+        return records;
+    }
+
+    /**
+     * Gives the kind of a record (GameLog.HEADER, GAME, DEAL, MOVE or END)
+     * @param index (long): the index of the record
+     * @return (byte): the kind of the record
+     */
+    public byte kind(long index) {
+        return segment(index).get(offset(index)+GameLog.KIND);
+    }
+
+    /**
+     * Gives the seed of the game of a record
+     * @param index (long): the index of the record
+     * @return (long): the seed of the game
+     */
+    public long seed(long index) {
+        return segment(index).getLong(offset(index)+GameLog.SEED);
+    }
+
+    /**
+     * Gives the index of the first MOVE record from the given index
+     * @param index (long): the index from which the record is searched
+     * @return (long): the index of the MOVE record, records() if there is none
+     */
+    public long nextMove(long index) {
+        while (index < records && kind(index) != GameLog.MOVE) {
+            ++index;
+        }
+        return index;
+    }
+
+    /**
+     * Gives the state of the turn before the card of a MOVE record
+     * @param index (long): the index of the MOVE record
+     * @return (TurnState): the state of the turn
+     */
+    public TurnState turnState(long index) {
+        check(index, GameLog.MOVE);
+        return TurnState.ofPackedComponents(field(index, 0), field(index, 1), trick(index));
+    }
+
+    /**
+     * Gives the hand of the player before the card of a MOVE record
+     * @param index (long): the index of the MOVE record
+     * @return (CardSet): the hand of the player
+     */
+    public CardSet hand(long index) {
+        check(index, GameLog.MOVE);
+        return CardSet.ofPacked(field(index, 2));
+    }
+
+    /**
+     * Gives the player of a MOVE record (the one playing) or of a DEAL record (the first player of the turn)
+     * @param index (long): the index of the record
+     * @return (PlayerId): the player
+     */
+    public PlayerId player(long index) {
+        Preconditions.checkArgument(kind(index) == GameLog.MOVE || kind(index) == GameLog.DEAL);
+        return PlayerId.ALL.get(segment(index).get(offset(index)+GameLog.PLAYER));
+    }
+
+    /**
+     * Gives the card played of a MOVE record
+     * @param index (long): the index of the MOVE record
+     * @return (Card): the card
+     */
+    public Card card(long index) {
+        check(index, GameLog.MOVE);
+        return Card.ofPacked(argument(index));
+    }
+
+    /**
+     * Gives the trick after the card of a MOVE record
+     * @param index (long): the index of the MOVE record
+     * @return (Trick): the trick
+     */
+    public Trick trickAfter(long index) {
+        check(index, GameLog.MOVE);
+        return Trick.ofPacked((int)field(index, 3));
+    }
+
+    /**
+     * Gives the state of the turn after the card of a MOVE record, computed again from the state before it
+     * @param index (long): the index of the MOVE record
+     * @return (TurnState): the state of the turn
+     */
+    public TurnState turnStateAfter(long index) {
+        return turnState(index).withNewCardPlayed(card(index));
+    }
+
+    /**
+     * Gives the card that the given player plays in the position of a MOVE record
+     * @param index (long): the index of the MOVE record
+     * @param player (Player): the player
+     * @return (Card): the card played by the player
+     */
+    public Card replay(long index, Player player) {
+        return player.cardToPlay(turnState(index), hand(index));
+    }
+
+    /**
+     * Gives the trump of a DEAL record
+     * @param index (long): the index of the DEAL record
+     * @return (Color): the trump
+     */
+    public Color trump(long index) {
+        check(index, GameLog.DEAL);
+        return Color.ALL.get(argument(index));
+    }
+
+    /**
+     * Gives the hand dealt to a player in a DEAL record
+     * @param index (long): the index of the DEAL record
+     * @param id (PlayerId): the player
+     * @return (CardSet): the hand dealt
+     */
+    public CardSet dealtHand(long index, PlayerId id) {
+        check(index, GameLog.DEAL);
+        return CardSet.ofPacked(field(index, id.ordinal()));
+    }
+
+    /**
+     * Gives the winning team of an END record
+     * @param index (long): the index of the END record
+     * @return (TeamId): the winning team
+     */
+    public TeamId winningTeam(long index) {
+        check(index, GameLog.END);
+        return TeamId.ALL.get(argument(index));
+    }
+
+    /**
+     * Gives the final score of an END record
+     * @param index (long): the index of the END record
+     * @return (Score): the score
+     */
+    public Score score(long index) {
+        check(index, GameLog.END);
+        return Score.ofPacked(field(index, 0));
+    }
+
+    /**
+     * Closes the file (the mappings stay valid until they are collected)
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Checks the kind of a record
+     * @param index (long): the index of the record
+     * @param kind (byte): the kind expected
+     * @throws IllegalArgumentException if the record is not of the given kind
+     */
+    private void check(long index, byte kind) {
+        Preconditions.checkArgument(kind(index) == kind);
+    }
+
+    /**
+     * Gives the argument (card, trump or team) of a record
+     * @param index (long): the index of the record
+     * @return (int): the argument
+     */
+    private int argument(long index) {
+        return segment(index).get(offset(index)+GameLog.ARGUMENT);
+    }
+
+    /**
+     * Gives the packed trick of a record
+     * @param index (long): the index of the record
+     * @return (int): the packed trick
+     */
+    private int trick(long index) {
+        return segment(index).getInt(offset(index)+GameLog.TRICK);
+    }
+
+    /**
+     * Gives a field of a record
+     * @param index (long): the index of the record
+     * @param field (int): the index of the field
+     * @return (long): the field
+     */
+    private long field(long index, int field) {
+        return segment(index).getLong(offset(index)+GameLog.FIELDS+Long.BYTES*field);
+    }
+
+    /**
+     * Gives the mapped segment of the file containing a record
+     * @param index (long): the index of the record
+     * @return (ByteBuffer): the segment
+     * @throws IndexOutOfBoundsException if there is no record of this index
+     */
+    private ByteBuffer segment(long index) {
+        if (index < 0 || index >= records) {
+            throw new IndexOutOfBoundsException();
+        }
+        return segments[(int)(index/SEGMENT_RECORDS)];
+    }
+
+    /**
+     * Gives the offset of a record in its segment
+     * @param index (long): the index of the record
+     * @return (int): the offset
+     */
+    private static int offset(long index) {
+        return (int)(index%SEGMENT_RECORDS)*GameLog.RECORD_SIZE;
+    }
+}
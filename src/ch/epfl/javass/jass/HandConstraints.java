@@ -0,0 +1,191 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+/**
+ * Class that keeps, for each player, the set of cards it may still have in its hand given the cards it played:
+ * a player who does not follow the base color has no card of this color anymore (except the jack of trump
+ * when trump was asked), and a player who plays a trump lower than the winning one has only such trumps left.
+ * It also deals the hidden cards randomly between the players, consistently with these sets
+ */
+final class HandConstraints {
+
+    private final long[] possibleCards = new long[PlayerId.COUNT];
+
+    //The cards each player can still receive and the number of cards it misses during a deal
+    private final long[] allowed = new long[PlayerId.COUNT];
+    private final int[] missing = new int[PlayerId.COUNT];
+
+    /**
+     * Constructor of HandConstraints, with no constraint
+     */
+    HandConstraints() {
+        reset();
+    }
+
+    /**
+     * Removes all the constraints (at the beginning of a turn)
+     */
+    void reset() {
+        for (int p=0; p<PlayerId.COUNT; ++p) {
+            possibleCards[p] = PackedCardSet.ALL_CARDS;
+        }
+    }
+
+    /**
+     * Replaces the constraints by the ones of the given HandConstraints
+     * @param that (HandConstraints): the constraints to copy
+     */
+    void setTo(HandConstraints that) {
+        System.arraycopy(that.possibleCards, 0, possibleCards, 0, PlayerId.COUNT);
+    }
+
+    /**
+     * Adds the constraint given by the last card of the given trick to the set of its player
+     * @param pkTrick (int): the packed trick, the last card being the one just played
+     */
+    void update(int pkTrick) {
+        int size = PackedTrick.size(pkTrick);
+        if (size < 2) {
+            return;
+        }
+        int pkCard = PackedTrick.card(pkTrick, size-1);
+        int player = PackedTrick.player(pkTrick, size-1).ordinal();
+
+        //The trick before the card: its slot set back to the invalid card
+        int shift = PackedTrick.BITS_FOR_CARD*(size-1);
+        int previousTrick = (pkTrick & ~(PackedCard.INVALID << shift)) | (PackedCard.INVALID << shift);
+
+        possibleCards[player] = PackedCardSet.difference(possibleCards[player], PackedCardSet.singleton(pkCard));
+        possibleCards[player] &= constraint(previousTrick, pkCard);
+    }
+
+    /**
+     * Gives the set of cards a player may still have after playing the given card in the given trick
+     * (following the rules of PackedTrick.playableCards)
+     * @param pkTrick (int): the packed trick before the card, not empty
+     * @param pkCard (int): the packed card played
+     * @return (long): the packed set of the cards the player may still have
+     */
+    private static long constraint(int pkTrick, int pkCard) {
+        Color trump = PackedTrick.trump(pkTrick);
+        Color base = PackedTrick.baseColor(pkTrick);
+        Color color = PackedCard.color(pkCard);
+        long trumps = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, trump);
+
+        if (color == base) {
+            return PackedCardSet.ALL_CARDS;
+        }
+        if (base == trump) {
+            //Only the jack of trump can be kept when trump is asked
+            return PackedCardSet.difference(PackedCardSet.ALL_CARDS,
+                    PackedCardSet.remove(trumps, PackedCard.pack(trump, Rank.JACK)));
+        }
+        if (color != trump) {
+            return PackedCardSet.difference(PackedCardSet.ALL_CARDS, PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, base));
+        }
+
+        int winningIndex = (PackedTrick.winningPlayer(pkTrick).ordinal()-PackedTrick.player(pkTrick, 0).ordinal()+PlayerId.COUNT) % PlayerId.COUNT;
+        int winningCard = PackedTrick.card(pkTrick, winningIndex);
+        if (PackedCard.color(winningCard) != trump || PackedCard.isBetter(trump, pkCard, winningCard)) {
+            return PackedCardSet.ALL_CARDS;
+        }
+        //Playing under the winning trump is only allowed with nothing else than lower trumps
+        return PackedCardSet.difference(trumps, PackedCardSet.trumpAbove(winningCard));
+    }
+
+    /**
+     * Deals the given hidden cards between the players other than the given one, each player receiving
+     * the given number of cards among the ones it may have.
+     * The cards are dealt one after the other, each one to a player chosen with a probability proportional to the
+     * number of cards it still has to receive among the players who may have it and for which the rest
+     * of the cards can still be dealt, so that no deal is ever rejected (without constraint the deal is uniform).
+     * If the constraints can not be satisfied (they come from an other turn) they are ignored
+     * @param hidden (long): the packed set of the cards to deal
+     * @param counts (int[]): the number of cards of each player, indexed by the ordinal of the players
+     * @param ownId (PlayerId): the player whose hand is known (it receives no card)
+     * @param hands (long[]): the hands of the players to fill, indexed by the ordinal of the players (the hand of
+     * the given player is not modified)
+     * @param rng (SplittableRandom): the random generator used to deal the cards
+     */
+    void deal(long hidden, int[] counts, PlayerId ownId, long[] hands, SplittableRandom rng) {
+        int own = ownId.ordinal();
+        boolean constrained = false;
+        for (int p=0; p<PlayerId.COUNT; ++p) {
+            if (p == own) {
+                allowed[p] = PackedCardSet.EMPTY;
+                missing[p] = 0;
+            }
+            else {
+                allowed[p] = possibleCards[p] & hidden;
+                missing[p] = counts[p];
+                hands[p] = PackedCardSet.EMPTY;
+                constrained |= allowed[p] != hidden;
+            }
+        }
+        if (constrained && !canDeal(hidden)) {
+            constrained = false;
+            for (int p=0; p<PlayerId.COUNT; ++p) {
+                allowed[p] = p == own ? PackedCardSet.EMPTY : hidden;
+            }
+        }
+
+        long cards = hidden;
+        while (cards != PackedCardSet.EMPTY) {
+            long card = Long.lowestOneBit(cards);
+            cards &= ~card;
+
+            int total = 0;
+            int candidates = 0;
+            for (int p=0; p<PlayerId.COUNT; ++p) {
+                if (missing[p] > 0 && (allowed[p] & card) != 0) {
+                    //The card can go to this player only if the other cards can still be dealt afterwards
+                    --missing[p];
+                    if (!constrained || canDeal(cards)) {
+                        total += missing[p]+1;
+                        candidates |= 1 << p;
+                    }
+                    ++missing[p];
+                }
+            }
+
+            int r = rng.nextInt(total);
+            int p = 0;
+            while ((candidates & (1 << p)) == 0 || r >= missing[p]) {
+                if ((candidates & (1 << p)) != 0) {
+                    r -= missing[p];
+                }
+                ++p;
+            }
+            --missing[p];
+            hands[p] |= card;
+        }
+    }
+
+    /**
+     * Says if the given cards can be dealt so that each player receives its missing number of cards among
+     * the ones it may have (Hall's condition: every group of players must be able to receive at least as many
+     * cards as they miss together)
+     * @param cards (long): the packed set of the cards to deal
+     * @return (boolean): true if the cards can be dealt
+     */
+    private boolean canDeal(long cards) {
+        for (int players=1; players < 1 << PlayerId.COUNT; ++players) {
+            long receivable = PackedCardSet.EMPTY;
+            int needed = 0;
+            for (int p=0; p<PlayerId.COUNT; ++p) {
+                if ((players & (1 << p)) != 0) {
+                    receivable |= allowed[p];
+                    needed += missing[p];
+                }
+            }
+            if (needed > Long.bitCount(receivable & cards)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -33,6 +33,10 @@ public final class JassGame {
     
     //The TurnState of the game 
     private TurnState state;
+
+    //The seed of the game and the log in which it is written (null if it is not logged)
+    private final long rngSeed;
+    private GameLog log;
     
     /**
      * Constructor of JassGame
@@ -44,6 +48,7 @@ public final class JassGame {
         
         Random rng = new Random(rngSeed);
         
+        this.rngSeed = rngSeed;
         this.shuffleRng = new Random(rng.nextLong());
         this.trumpRng = new Random(rng.nextLong());
         this.players = Collections.unmodifiableMap(new EnumMap<>(players));
@@ -56,6 +61,19 @@ public final class JassGame {
         }
     }
 
+    /**
+     * Writes the game in the given log (see GameLog): its start, each deal, each card played and its end
+     * @param log (GameLog): the log
+     * @throws IllegalStateException if the game has already started
+     */
+    public void logTo(GameLog log) {
+        if (!isFirstTurn) {
+            throw new IllegalStateException();
+        }
+        this.log = log;
+        log.game(rngSeed);
+    }
+
     /**
      * Checks if the game is over (if one of the teams has reached the maximum number of points)
      * @return (boolean): true if the game is over, false otherwise
@@ -78,8 +96,8 @@ public final class JassGame {
      */
     private List<Card> createDeck(){
         List<Card> newDeck= new ArrayList<Card>();
-        for (int i =0;i<CardSet.ALL_CARDS.size(); ++i ) {
-            newDeck.add(CardSet.ALL_CARDS.get(i));
+        for (Card c: CardSet.ALL_CARDS) {
+            newDeck.add(c);
         }
         return newDeck;
     }
@@ -141,6 +159,9 @@ public final class JassGame {
         else {
             state = TurnState.initial(trump, state.score().nextTurn(), firstPlayer);
         }
+        if (log != null) {
+            log.deal(rngSeed, state, handsOfCards);
+        }
     }
 
     /**
@@ -151,7 +172,11 @@ public final class JassGame {
         PlayerId nextPlayer = state.nextPlayer();
         players.get(nextPlayer).setHelp(state, handsOfCards.get(nextPlayer), nextPlayer);
         Card c = players.get(nextPlayer).cardToPlay(state, handsOfCards.get(nextPlayer));
+        TurnState before = state;
         state = state.withNewCardPlayed(c);
+        if (log != null) {
+            log.move(rngSeed, before, handsOfCards.get(nextPlayer), c, state.trick());
+        }
         
         handsOfCards.put(nextPlayer, handsOfCards.get(nextPlayer).remove(c));
         players.get(nextPlayer).updateHand(handsOfCards.get(nextPlayer));
@@ -187,6 +212,10 @@ public final class JassGame {
             for (Map.Entry<PlayerId, Player> pId: players.entrySet()) {
                 pId.getValue().setWinningTeam(findWinningTeam());
             }
+            if (log != null) {
+                log.end(rngSeed, findWinningTeam(), state.score());
+                log.flush();
+            }
             return;
         }
 
@@ -202,6 +231,9 @@ public final class JassGame {
         while (!(state.trick().isFull())) {
             playNextPlayer();
         }
+        if (log != null) {
+            log.flush();
+        }
     }
 
     /**
@@ -1,9 +1,17 @@
 package ch.epfl.javass.jass;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.Card.Color;
 /**
  * Class that represent a simulated player using the MCTS algorithm 
  */
@@ -12,7 +20,20 @@ public final class MctsPlayer implements Player{
     private PlayerId mctsPlayerId;
     private SplittableRandom rng;
     private int iterations;
+    private ForkJoinPool pool;
+    private ParallelMode mode;
+    private PackedMctsTree tree;
+    private PackedMctsTree[] workerTrees;
+    private SharedNode sharedRoot;
+    private HandConstraints handConstraints;
+    private long searchTime;
+    private int tableEntries;
+    private long lastIterations;
+    private long totalIterations;
+    private int movesPlayed;
+    private final int[] rootVisits = new int[CardSet.ALL_CARDS.size()];
     private final static int VALUE_C = 40;
+    private final static double NANOSECONDS_PER_SECOND = 1e9;
 
 
 
@@ -24,231 +45,644 @@ public final class MctsPlayer implements Player{
      * @param iterations (int) : the number of iterations 
      */
     public MctsPlayer(PlayerId ownId, long rngSeed, int iterations) {
+        this(ownId, rngSeed, iterations, null);
+    }
+
+    /**
+     * Constructor of a MctsPlayer doing a root parallel search: the iterations are split between the workers
+     * of the given pool, each worker building its own tree with its own random generator, and the statistics
+     * of the children of the roots are merged before choosing the card.
+     * The number of workers is the parallelism of the pool, so a seeded player stays deterministic as long
+     * as the parallelism of its pool does not change
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param iterations (int) : the total number of iterations (shared between all the workers)
+     * @param pool (ForkJoinPool) : the pool running the workers, or null for a sequential search
+     * @throws IllegalArgumentException: if the given number of iteration is smaller than 9
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations, ForkJoinPool pool) {
+        this(ownId, rngSeed, iterations, pool, ParallelMode.ROOT);
+    }
+
+    /**
+     * Constructor of a MctsPlayer doing a parallel search with the given mode (see ParallelMode)
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param iterations (int) : the total number of iterations (shared between all the workers)
+     * @param pool (ForkJoinPool) : the pool running the workers, or null for a sequential search
+     * @param mode (ParallelMode) : the way the workers share the search
+     * @throws IllegalArgumentException: if the given number of iteration is smaller than 9
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations, ForkJoinPool pool, ParallelMode mode) {
+        this(ownId, rngSeed, iterations, 0, pool, mode, false, 0);
         if(iterations<Jass.TRICKS_PER_TURN) {
             throw new IllegalArgumentException("nombre d'itérations insuffisant");
         }
+    }
+
+    /**
+     * Private constructor of MctsPlayer
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param iterations (int) : the number of iterations, the minimum number of iterations for an anytime search
+     * @param searchTime (long) : the search time in nanoseconds for an anytime search, 0 otherwise
+     * @param pool (ForkJoinPool) : the pool running the workers, or null for a sequential search
+     * @param mode (ParallelMode) : the way the workers share the search
+     * @param informationSets (boolean) : true if the search deals the hidden cards (see withInformationSets)
+     * @param tableEntries (int) : the number of entries of the transposition table of each tree, 0 to use none
+     * (see withTranspositionTable)
+     */
+    private MctsPlayer(PlayerId ownId, long rngSeed, int iterations, long searchTime, ForkJoinPool pool, ParallelMode mode, boolean informationSets, int tableEntries) {
         this.iterations = iterations;
+        this.tableEntries = tableEntries;
+        this.searchTime = searchTime;
+        this.pool = pool;
+        this.mode = mode;
         mctsPlayerId = ownId;
         rng = new SplittableRandom(rngSeed);
+        handConstraints = informationSets ? new HandConstraints() : null;
+    }
+
+    /**
+     * Returns a sequential MctsPlayer doing an anytime search: instead of a fixed number of iterations it searches
+     * until its search time is over, or until the deadline given by cardToPlay(state, hand, deadline) (which is how
+     * a PacedPlayer gives it its pause time)
+     * Note that the choices of such a player depend on the speed of the computer, even with a seed
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param searchTime (double) : the time of the search in seconds
+     * @throws IllegalArgumentException: if the search time is not strictly positive
+     * @return (MctsPlayer): the anytime MctsPlayer
+     */
+    public static MctsPlayer withSearchTime(PlayerId ownId, long rngSeed, double searchTime) {
+        return withSearchTime(ownId, rngSeed, searchTime, null, ParallelMode.ROOT);
+    }
+
+    /**
+     * Returns a MctsPlayer doing a parallel anytime search (see withSearchTime(ownId, rngSeed, searchTime))
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param searchTime (double) : the time of the search in seconds
+     * @param pool (ForkJoinPool) : the pool running the workers, or null for a sequential search
+     * @param mode (ParallelMode) : the way the workers share the search
+     * @throws IllegalArgumentException: if the search time is not strictly positive
+     * @return (MctsPlayer): the anytime MctsPlayer
+     */
+    public static MctsPlayer withSearchTime(PlayerId ownId, long rngSeed, double searchTime, ForkJoinPool pool, ParallelMode mode) {
+        Preconditions.checkArgument(searchTime > 0);
+        return new MctsPlayer(ownId, rngSeed, Jass.TRICKS_PER_TURN, (long)(searchTime*NANOSECONDS_PER_SECOND), pool, mode, false, 0);
+    }
+
+    /**
+     * Returns a sequential MctsPlayer doing an information set search: instead of considering that any other
+     * player may have any unplayed card, it keeps the colors each player can not have anymore (the ones it did not
+     * follow) and each iteration deals the unknown cards between the other players consistently with them, the tree
+     * only going through the cards playable with this deal
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random deals and simulated games
+     * @param iterations (int) : the number of iterations
+     * @throws IllegalArgumentException: if the given number of iteration is smaller than 9
+     * @return (MctsPlayer): the information set MctsPlayer
+     */
+    public static MctsPlayer withInformationSets(PlayerId ownId, long rngSeed, int iterations) {
+        return withInformationSets(ownId, rngSeed, iterations, null);
+    }
+
+    /**
+     * Returns a MctsPlayer doing a root parallel information set search (see withInformationSets(ownId, rngSeed,
+     * iterations)), each worker dealing the cards with its own random generator
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random deals and simulated games
+     * @param iterations (int) : the total number of iterations (shared between all the workers)
+     * @param pool (ForkJoinPool) : the pool running the workers, or null for a sequential search
+     * @throws IllegalArgumentException: if the given number of iteration is smaller than 9
+     * @return (MctsPlayer): the information set MctsPlayer
+     */
+    public static MctsPlayer withInformationSets(PlayerId ownId, long rngSeed, int iterations, ForkJoinPool pool) {
+        Preconditions.checkArgument(iterations >= Jass.TRICKS_PER_TURN);
+        return new MctsPlayer(ownId, rngSeed, iterations, 0, pool, ParallelMode.ROOT, true, 0);
+    }
+
+    /**
+     * Returns a sequential MctsPlayer whose tree uses a transposition table (see TranspositionTable): the nodes
+     * of a same state reached by different orders of the cards share their statistics, which gives a better mean
+     * score to the children of the root for the same number of iterations
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param iterations (int) : the number of iterations
+     * @param entries (int) : the number of entries of the table, a power of two (the memory used being bounded)
+     * @throws IllegalArgumentException: if the given number of iteration is smaller than 9 or if the number of
+     * entries is not a power of two of at least TranspositionTable.MIN_ENTRIES
+     * @return (MctsPlayer): the MctsPlayer with a transposition table
+     */
+    public static MctsPlayer withTranspositionTable(PlayerId ownId, long rngSeed, int iterations, int entries) {
+        return withTranspositionTable(ownId, rngSeed, iterations, entries, null);
+    }
+
+    /**
+     * Returns a MctsPlayer doing a root parallel search (see withTranspositionTable(ownId, rngSeed, iterations,
+     * entries)), each worker having its own tree and its own table
+     * @param ownId (PlayerId) : the identity of the MctsPlayer
+     * @param rngSeed (long) : the seed for the random simulated games
+     * @param iterations (int) : the total number of iterations (shared between all the workers)
+     * @param entries (int) : the number of entries of the table of each worker, a power of two
+     * @param pool (ForkJoinPool) : the pool running the workers, or null for a sequential search
+     * @throws IllegalArgumentException: if the given number of iteration is smaller than 9 or if the number of
+     * entries is not a power of two of at least TranspositionTable.MIN_ENTRIES
+     * @return (MctsPlayer): the MctsPlayer with a transposition table
+     */
+    public static MctsPlayer withTranspositionTable(PlayerId ownId, long rngSeed, int iterations, int entries, ForkJoinPool pool) {
+        Preconditions.checkArgument(iterations >= Jass.TRICKS_PER_TURN && entries >= TranspositionTable.MIN_ENTRIES && Integer.bitCount(entries) == 1);
+        return new MctsPlayer(ownId, rngSeed, iterations, 0, pool, ParallelMode.ROOT, false, entries);
+    }
+
+    /**
+     * Gives the number of iterations done to choose the last card played
+     * @return (long): the number of iterations of the last search
+     */
+    public long lastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * Gives the average number of iterations done per card played since the creation of the player
+     * @return (double): the average number of iterations per move, 0 if the player has not played yet
+     */
+    public double averageIterations() {
+        return movesPlayed == 0 ? 0 : (double)totalIterations/movesPlayed;
     }
     
 
     /**
-     * Creates a new child to the given parent node  and updates the score of all the node contained 
-     * in the given list
-     * @param parents (Node): the node that we want to add a child to
-     * @param path (List<Node>): the path of nodes to go from the root of the tree to the child that is going to be 
-     * created
+     * Gives the root visit distribution of the last search: the number of iterations in which each card playable
+     * was the card played (the iterations of the trees followed since a previous search included)
+     * @param visits (int[]): the array in which the distribution is copied, indexed by the index of the cards in
+     * CardSet.ALL_CARDS (of size 36), the cards not playable having no visit
      */
-    private void addChild(Node parents, List<Node> path) {
+    public void lastRootVisits(int[] visits) {
+        System.arraycopy(rootVisits, 0, visits, 0, rootVisits.length);
+    }
+    
 
-        TurnState turn = parents.nodeTurnState;
-        CardSet hand =parents.mctsHand;
+    /**
+     * Simulated a random turn from the given TurnState where all the players play a random card from the unplayed cards of 
+     * the TurnState or from its hand if it's the MctsPlayer that play
+     * @param mctsHand (CardSet): the hand of cards of the MctsPlayer
+     * @param state (TurnState): the state of the game (to be able to simulate a turn from this state of the game)
+     * @param rng (SplittableRandom): the random generator used to choose the cards
+     * @return (Score): the score obtained at the end of the simulated turn
+     */
+    private Score randomTurn(CardSet mctsHand, TurnState turnState, SplittableRandom rng) {
+        return Score.ofPacked(PackedRollout.randomTurn(turnState.packedScore(), turnState.packedUnplayedCards(),
+                turnState.packedTrick(), mctsHand.packed(), mctsPlayerId, rng));
+    }
 
-        //If the node is terminal we just simulate a random turn and update the score of the nodes in the path 
-        if(turn.isTerminal()) {
-            Score score = turn.score();
-            updateScore (path,score);
-            return;
+    /**
+     * Override of the method cardToPlay of interface Player
+     */
+    @Override
+    public Card cardToPlay(TurnState state, CardSet hand) {
+        return search(state, hand, System.nanoTime()+searchTime);
+    }
+
+    /**
+     * Override of the method cardToPlay of interface Player: an anytime MctsPlayer searches until the given
+     * deadline, a MctsPlayer with a fixed number of iterations ignores it
+     */
+    @Override
+    public Card cardToPlay(TurnState state, CardSet hand, long deadline) {
+        return search(state, hand, deadline);
+    }
+
+    /**
+     * Applies the MCTS algorithm from the given state and returns the chosen card
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of the MctsPlayer
+     * @param deadline (long): the end of the search (as given by System.nanoTime()) for an anytime search
+     * @return (Card): the chosen card
+     */
+    private Card search(TurnState state, CardSet hand, long deadline) {
+
+        if (pool != null) {
+            return mode == ParallelMode.TREE ? treeParallelCardToPlay(state, hand, deadline) : rootParallelCardToPlay(state, hand, deadline);
         }
 
-        //Creation of the TurnState of the child by choosing the card to add 
-        if (turn.nextPlayer()== mctsPlayerId) {
-            Card cardToPlay = turn.trick().playableCards(parents.cardSetofInexistantNodes).get(0);
-            turn = turn.withNewCardPlayedAndTrickCollected(cardToPlay);
-            hand = hand.remove(cardToPlay);
-            parents.cardSetofInexistantNodes= parents.cardSetofInexistantNodes.remove(cardToPlay);
+        if (tree == null) {
+            tree = newTree();
+        }
+        if (!tree.canReuse(state, hand)) {
+            tree.reset(state, hand);
         }
-        else {
-            Card cardToPlay = turn.trick().playableCards(parents.cardSetofInexistantNodes).get(0);
-            turn = turn.withNewCardPlayedAndTrickCollected(cardToPlay);
-            parents.cardSetofInexistantNodes= parents.cardSetofInexistantNodes.remove(cardToPlay);
+        if (handConstraints != null) {
+            tree.setConstraints(handConstraints);
         }
+        int previousIterations = tree.rootVisits();
 
-        Node child= new Node(turn, hand, mctsPlayerId);
+        //Apply the MCTS algorithm to the root 
+        for (int i=0; keepSearching(i, iterations, deadline);++i) {
+            tree.iterate(rng);
+        }
+        recordIterations(tree.rootVisits()-previousIterations);
+        Arrays.fill(rootVisits, 0);
+        tree.addRootVisits(rootVisits);
 
-        //Simulation of the random turn and update of the score and finished turns count for the child
-        //and all the nodes in the path
-        Score score= randomTurn(hand, child.nodeTurnState);
-        child.scoreForNode = score.turnPoints(parents.nodeTurnState.nextPlayer().team());
-        child.finishedTurns += 1;
-        putChildInArray(parents,child);
-        updateScore(path,score);
+        return Card.ofPacked(tree.bestCard());
     }
 
     /**
-     * Updates of the score and finished turns count of all the nodes in the given list
-     * @param path(List<Node>): the path of nodes to go from the root of the tree to the child that is going to be 
-     * created
-     * @param score (Score): the score obtained with the random turn of the child
+     * Override of the method updateHand of interface Player: the trees are discarded when a new turn starts
      */
-    private void updateScore(List<Node> path, Score score) {
-
-        for (int i=0; i< path.size(); ++i) {
-            if (i==0) {
-                path.get(i).scoreForNode += score.turnPoints(mctsPlayerId.team().other());
-                path.get(i).finishedTurns+=1;
+    @Override
+    public void updateHand(CardSet newHand) {
+        if (tree != null) {
+            tree.updateHand(newHand.packed());
+        }
+        if (workerTrees != null) {
+            for (PackedMctsTree workerTree: workerTrees) {
+                workerTree.updateHand(newHand.packed());
             }
-            else {
-                path.get(i).scoreForNode  += score.turnPoints(path.get(i-1).nodeTurnState.nextPlayer().team());
-                path.get(i).finishedTurns+=1;
+        }
+        if (sharedRoot != null && !sharedRoot.mctsHand.union(newHand).equals(sharedRoot.mctsHand)) {
+            sharedRoot = null;
+        }
+    }
+
+    /**
+     * Override of the method setTrump of interface Player: the constraints on the hands of the other players
+     * are forgotten when a new turn starts
+     */
+    @Override
+    public void setTrump(Color trump) {
+        if (handConstraints != null) {
+            handConstraints.reset();
+        }
+    }
+
+    /**
+     * Override of the method updateTrick of interface Player: the subtree of the card just played becomes
+     * the tree, so that the next search continues from the statistics already computed for its state
+     * (and the card gives its constraint on the hand of its player to an information set search)
+     */
+    @Override
+    public void updateTrick(Trick newTrick) {
+        if (handConstraints != null) {
+            handConstraints.update(newTrick.packed());
+        }
+        if (newTrick.isEmpty()) {
+            return;
+        }
+        int card = newTrick.card(newTrick.size()-1).packed();
+        if (tree != null) {
+            tree.play(card);
+        }
+        if (workerTrees != null) {
+            for (PackedMctsTree workerTree: workerTrees) {
+                workerTree.play(card);
             }
         }
+        if (sharedRoot != null) {
+            sharedRoot = sharedRoot.child(card);
+        }
+    }
+
+    /**
+     * Creates an empty tree for the search of the player
+     * @return (PackedMctsTree): the tree, with its own transposition table if the player uses one
+     */
+    private PackedMctsTree newTree() {
+        return new PackedMctsTree(mctsPlayerId, handConstraints != null, tableEntries > 0 ? new TranspositionTable(tableEntries) : null);
+    }
+
+    /**
+     * Says if a search has to do one more iteration
+     * @param done (int): the number of iterations already done
+     * @param minIterations (int): the number of iterations to do at least
+     * @param deadline (long): the end of the search (as given by System.nanoTime()) for an anytime search
+     * @return (boolean): true if the search has to continue
+     */
+    private boolean keepSearching(int done, int minIterations, long deadline) {
+        return done < minIterations || (searchTime > 0 && System.nanoTime()-deadline < 0);
+    }
+
+    /**
+     * Records the number of iterations done to choose a card
+     * @param done (long): the number of iterations done
+     */
+    private void recordIterations(long done) {
+        lastIterations = done;
+        totalIterations += done;
+        ++movesPlayed;
     }
 
     /**
-     * Find the node to explore and add a child (if possible) to this node
-     * @param root (Node): the root of the tree
+     * Chooses the card to play by building one tree per worker of the pool and merging the statistics
+     * of the children of all the roots
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of the MctsPlayer
+     * @param deadline (long): the end of the search (as given by System.nanoTime()) for an anytime search
+     * @return (Card): the card with the best mean score over all the trees
      */
-    private void explorer(Node root){
-        List<Node> path = new ArrayList<Node>();
+    private Card rootParallelCardToPlay(TurnState state, CardSet hand, long deadline) {
 
-        Node nodeToExplore =root;
+        //Each worker needs enough iterations to create every child of its root
+        int workers = searchTime > 0 ? pool.getParallelism() : Math.max(1, Math.min(pool.getParallelism(), iterations/Jass.TRICKS_PER_TURN));
+
+        if (workerTrees == null || workerTrees.length < workers) {
+            workerTrees = new PackedMctsTree[workers];
+            for (int w=0; w<workers; ++w) {
+                workerTrees[w] = newTree();
+            }
+        }
 
-        while(nodeToExplore.cardSetofInexistantNodes.isEmpty()&& !nodeToExplore.nodeTurnState.isTerminal()) {
-            path.add(nodeToExplore);
-            nodeToExplore= nodeToExplore.childsOfNode[nodeToExplore.findBestChild(VALUE_C)];
+        long previousIterations = 0;
+        for (int w=0; w<workers; ++w) {
+            if (!workerTrees[w].canReuse(state, hand)) {
+                workerTrees[w].reset(state, hand);
+            }
+            if (handConstraints != null) {
+                workerTrees[w].setConstraints(handConstraints);
+            }
+            previousIterations += workerTrees[w].rootVisits();
         }
 
-        path.add(nodeToExplore);
-        addChild(nodeToExplore, path);
+        List<PackedMctsTree> trees = runWorkers(workers, (w, workerRng, workerIterations) -> {
+            PackedMctsTree workerTree = workerTrees[w];
+            for (int i=0; keepSearching(i, Math.max(workerIterations, Jass.TRICKS_PER_TURN), deadline); ++i) {
+                workerTree.iterate(workerRng);
+            }
+            return workerTree;
+        });
+
+        CardSet playable = state.trick().playableCards(hand);
+        long[] scores = new long[playable.size()];
+        long[] turns = new long[playable.size()];
+        long done = 0;
+        Arrays.fill(rootVisits, 0);
+        for (PackedMctsTree workerTree: trees) {
+            done += workerTree.rootVisits();
+            workerTree.addRootStatistics(scores, turns);
+            workerTree.addRootVisits(rootVisits);
+        }
+        recordIterations(done-previousIterations);
+
+        double bestMean = 0;
+        int index = 0;
+        for (int i=0; i<scores.length; ++i) {
+            if (turns[i] > 0 && (double)scores[i]/turns[i] > bestMean) {
+                bestMean = (double)scores[i]/turns[i];
+                index = i;
+            }
+        }
+        return playable.get(index);
     }
 
     /**
-     * Simulated a random turn from the given TurnState where all the players play a random card from the unplayed cards of 
-     * the TurnState or from its hand if it's the MctsPlayer that play
-     * @param mctsHand (CardSet): the hand of cards of the MctsPlayer
-     * @param state (TurnState): the state of the game (to be able to simulate a turn from this state of the game)
-     * @return (Score): the score obtained at the end of the simulated turn
+     * Chooses the card to play by making all the workers of the pool explore one shared tree
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of the MctsPlayer
+     * @param deadline (long): the end of the search (as given by System.nanoTime()) for an anytime search
+     * @return (Card): the card corresponding to the child of the root with the best mean score
      */
-    private Score randomTurn(CardSet mctsHand, TurnState turnState) {
-        TurnState turn = turnState;
-        CardSet hand = mctsHand;
-
-        // Makes all the different players play until the end of the turn 
-        while(!turn.isTerminal()) {
-            if(turn.nextPlayer() == mctsPlayerId) {
-                CardSet playableCardOfMcts = turn.trick().playableCards(hand);
-                Card cardToPlay = playableCardOfMcts.get(rng.nextInt(playableCardOfMcts.size()));
-                turn = turn.withNewCardPlayedAndTrickCollected(cardToPlay);
-                hand= hand.remove(cardToPlay);
-            }
-            else {
-                CardSet playableCard =turn.unplayedCards().difference(hand);
-                playableCard = turn.trick().playableCards(playableCard);
+    private Card treeParallelCardToPlay(TurnState state, CardSet hand, long deadline) {
+
+        if (sharedRoot == null || !sharedRoot.canReuse(state, hand)) {
+            sharedRoot = new SharedNode(state, hand, mctsPlayerId);
+        }
+        SharedNode root = sharedRoot;
+        long previousIterations = root.turns();
 
-                turn = turn.withNewCardPlayedAndTrickCollected(playableCard.get(rng.nextInt(playableCard.size())));
+        runWorkers(pool.getParallelism(), (w, workerRng, workerIterations) -> {
+            for (int i=0; keepSearching(i, workerIterations, deadline); ++i) {
+                sharedExplorer(root, workerRng);
+            }
+            return root;
+        });
+        recordIterations(root.turns()-previousIterations);
+        Arrays.fill(rootVisits, 0);
+        for (int i=0; i<root.childsOfNode.length(); ++i) {
+            SharedNode child = root.childsOfNode.get(i);
+            if (child != null) {
+                rootVisits[PackedCardSet.indexOf(PackedCardSet.ALL_CARDS, PackedCardSet.get(root.childCards, i))] += (int)child.turns();
             }
         }
 
-        return turn.score();
+        int index = Math.max(0, root.findBestChild(0));
+        return state.trick().playableCards(hand).get(index);
     }
 
     /**
-     * Put the given child node in the array of child of the given parent node
-     * @param parent (Node): the parents node 
-     * @param child (Child): the child node
+     * Splits the iterations between the given number of workers and runs them on the pool
+     * The generators are split here, in order, so that the work given to each worker does not depend on the scheduling
+     * @param workers (int): the number of workers
+     * @param work (Worker<T>): the work of a worker
+     * @return (List<T>): the results of the workers, in order
      */
-    private void putChildInArray(Node parent, Node child) {
-        int index = (parent.childsOfNode.length)-(parent.cardSetofInexistantNodes.size()+1);
-        parent.childsOfNode[index]=child;
+    private <T> List<T> runWorkers(int workers, Worker<T> work) {
+        List<ForkJoinTask<T>> tasks = new ArrayList<>();
+        for (int w=0; w<workers; ++w) {
+            int index = w;
+            SplittableRandom workerRng = rng.split();
+            int workerIterations = iterations/workers + (w < iterations%workers ? 1 : 0);
+            tasks.add(pool.submit(() -> work.work(index, workerRng, workerIterations)));
+        }
+
+        List<T> results = new ArrayList<>();
+        for (ForkJoinTask<T> task: tasks) {
+            results.add(task.join());
+        }
+        return results;
     }
 
     /**
-     * Override of the method cardToPlay of interface Player
+     * Does one iteration on the shared tree: goes down the tree counting a visit (the virtual loss) on each node
+     * of the path, creates a child if possible, simulates a random turn and adds the points to the nodes of the path
+     * @param root (SharedNode): the root of the shared tree
+     * @param rng (SplittableRandom): the random generator of the worker
      */
-    @Override
-    public Card cardToPlay(TurnState state, CardSet hand) {
+    private void sharedExplorer(SharedNode root, SplittableRandom rng) {
+        List<SharedNode> path = new ArrayList<SharedNode>();
+        SharedNode node = root;
+        node.addToStatistics(0, 1);
+        path.add(node);
+
+        while (!node.nodeTurnState.isTerminal()) {
+            long inexistantNodes = node.inexistantNodes.get();
+
+            if (inexistantNodes != PackedCardSet.EMPTY) {
+                //Claims the smallest card without a child, or tries again if another worker was faster
+                long card = Long.lowestOneBit(inexistantNodes);
+                if (node.inexistantNodes.compareAndSet(inexistantNodes, inexistantNodes & ~card)) {
+                    Card cardToPlay = Card.ofPacked(Long.numberOfTrailingZeros(card));
+                    CardSet hand = node.nodeTurnState.nextPlayer() == mctsPlayerId ? node.mctsHand.remove(cardToPlay) : node.mctsHand;
+                    SharedNode child = new SharedNode(node.nodeTurnState.withNewCardPlayedAndTrickCollected(cardToPlay), hand, mctsPlayerId);
+                    child.addToStatistics(0, 1);
+                    node.childsOfNode.set(Long.bitCount(node.childCards & (card-1)), child);
+                    path.add(child);
+                    node = child;
+                    break;
+                }
+                continue;
+            }
 
-        Node root = new Node(state, hand,mctsPlayerId);
+            //If no child is visible yet (they are being created by other workers) the turn is simulated from this node
+            int index = node.findBestChild(VALUE_C);
+            if (index < 0) {
+                break;
+            }
+            node = node.childsOfNode.get(index);
+            node.addToStatistics(0, 1);
+            path.add(node);
+        }
 
-        //Apply the MCTS algorithm to the root 
-        for (int i=0; i<iterations;++i) {
-            explorer(root);
+        Score score = node.nodeTurnState.isTerminal() ? node.nodeTurnState.score() : randomTurn(node.mctsHand, node.nodeTurnState, rng);
+        for (int i=1; i<path.size(); ++i) {
+            path.get(i).addToStatistics(score.turnPoints(path.get(i-1).nodeTurnState.nextPlayer().team()), 0);
         }
+    }
+
+    /**
+     * Represent the work of one of the workers of a parallel search
+     */
+    @FunctionalInterface
+    private interface Worker<T> {
+        /**
+         * Does the work of a worker
+         * @param index (int): the index of the worker
+         * @param rng (SplittableRandom): the random generator of the worker
+         * @param iterations (int): the number of iterations of the worker
+         * @return (T): the result of the worker
+         */
+        T work(int index, SplittableRandom rng, int iterations);
+    }
 
-        int index = root.findBestChild(0);
-        Card c = root.nodeTurnState.trick().playableCards(hand).get(index); 
-        return c;
+    /**
+     * The ways a parallel search can share the work between the workers of the pool
+     */
+    public enum ParallelMode {
+        /** Each worker builds its own tree, the statistics of the roots are merged at the end (deterministic) */
+        ROOT,
+        /** All the workers build one shared tree (deeper tree, but the result depends on the scheduling) */
+        TREE;
     }
 
     /**
-     * Represent a node of the tree that the MctsPlayer builds
+     * Represent a node of the tree shared by all the workers in a tree parallel search.
+     * The score and the number of finished turns are packed in one long so that they are always read and
+     * updated together, and the children are created by claiming their card with a compare-and-set
      */
-    private static class Node {
+    private static final class SharedNode {
 
-        private TurnState nodeTurnState;
-        private Node[] childsOfNode;
-        private CardSet cardSetofInexistantNodes;
-        private int scoreForNode;
-        private int finishedTurns;
-        private CardSet mctsHand;
+        //Number of bits of the statistics used by the number of finished turns, the score using the others
+        private final static int BITS_FOR_TURNS = 28;
 
+        private final TurnState nodeTurnState;
+        private final CardSet mctsHand;
+        private final long childCards;
+        private final AtomicLong inexistantNodes;
+        private final AtomicReferenceArray<SharedNode> childsOfNode;
+        private final AtomicLong statistics;
 
         /**
-         * Constructor of Node
+         * Constructor of SharedNode
          * @param turnState (TurnState): the turnstate of the node
          * @param mctsHand (CardSet): the hand of the MctsPlayer when the node is created
          * @param mctsId (PlayerId): the Id of the MctsPlayer
          */
-        private Node(TurnState turnState, CardSet mctsHand,PlayerId mctsId){
-            nodeTurnState = turnState; 
-
-            // Determination of the CardSet of all the cards corresponding to an inexistent node depending on the next player
-            if (nodeTurnState.nextPlayer()==mctsId) {
-                if(!turnState.isTerminal()){
-                    cardSetofInexistantNodes = nodeTurnState.trick().playableCards(mctsHand);
-                }else {
-                    cardSetofInexistantNodes= CardSet.EMPTY;
-                }
+        private SharedNode(TurnState turnState, CardSet mctsHand, PlayerId mctsId) {
+            nodeTurnState = turnState;
+            this.mctsHand = mctsHand;
+
+            if (turnState.isTerminal()) {
+                childCards = PackedCardSet.EMPTY;
+            }
+            else if (turnState.nextPlayer() == mctsId) {
+                childCards = PackedTrick.playableCards(turnState.packedTrick(), mctsHand.packed());
             }
             else {
-                if(!turnState.isTerminal()){
-                    cardSetofInexistantNodes = nodeTurnState.trick().playableCards(nodeTurnState.unplayedCards().difference(mctsHand));
-                }
-                else {
-                    cardSetofInexistantNodes= CardSet.EMPTY;
-                }
+                childCards = PackedTrick.playableCards(turnState.packedTrick(), PackedCardSet.difference(turnState.packedUnplayedCards(), mctsHand.packed()));
             }
 
-            childsOfNode = new Node[cardSetofInexistantNodes.size()];
-            scoreForNode=0;
-            finishedTurns=0;
-            this.mctsHand=mctsHand;
+            inexistantNodes = new AtomicLong(childCards);
+            childsOfNode = new AtomicReferenceArray<>(PackedCardSet.size(childCards));
+            statistics = new AtomicLong();
+        }
+
+        /**
+         * Says if the node is the given state with the given hand
+         * @param state (TurnState): the state of the turn
+         * @param hand (CardSet): the hand of the MctsPlayer
+         * @return (boolean): true if the search can continue from this node
+         */
+        private boolean canReuse(TurnState state, CardSet hand) {
+            return nodeTurnState.packedScore() == state.packedScore()
+                    && nodeTurnState.packedUnplayedCards() == state.packedUnplayedCards()
+                    && nodeTurnState.packedTrick() == state.packedTrick()
+                    && mctsHand.equals(hand);
         }
 
         /**
-         * Calculate a parameter (called the "value V") useful to compare nodes with each other
-         * @param parent (Node): the parent node
-         * @param c (double): A parameter used in the formula to calculate the value "V" 
+         * Gives the child of the node reached by playing the given card
+         * @param pkCard (int): the packed card played
+         * @return (SharedNode): the child, or null if it was never created
+         */
+        private SharedNode child(int pkCard) {
+            long card = PackedCardSet.singleton(pkCard);
+            if ((childCards & card) == PackedCardSet.EMPTY) {
+                return null;
+            }
+            return childsOfNode.get(Long.bitCount(childCards & (card-1)));
+        }
+
+        /**
+         * Adds the given score and number of finished turns to the statistics of the node
+         * @param score (int): the points to add
+         * @param turns (int): the number of finished turns to add
+         */
+        private void addToStatistics(int score, int turns) {
+            statistics.addAndGet(((long)score << BITS_FOR_TURNS) + turns);
+        }
+
+        /**
+         * Gives the number of finished turns of the node
+         * @return (long): the number of finished turns
+         */
+        private long turns() {
+            return statistics.get() & ((1L << BITS_FOR_TURNS) - 1);
+        }
+
+        /**
+         * Calculate the value "V" of this node (the mean score plus an exploration term weighted by c)
+         * from one consistent reading of the statistics
+         * @param parentTurns (long): the number of finished turns of the parent node
+         * @param c (double): A parameter used in the formula to calculate the value "V"
          * @return (double): the value V for this node
          */
-        private double calculateV(Node parent, double c) {
-            if (finishedTurns <= 0) {
+        private double calculateV(long parentTurns, double c) {
+            long stats = statistics.get();
+            long turns = stats & ((1L << BITS_FOR_TURNS) - 1);
+            if (turns <= 0) {
                 return Double.POSITIVE_INFINITY;
             }
-            else {
-                double score = (double)scoreForNode;
-                double turns = (double)finishedTurns;
-                double v = (score/turns)+ c*Math.sqrt( (2*Math.log(((double)parent.finishedTurns)))/turns);
-                return v;
-            } 
+            double score = (double)(stats >>> BITS_FOR_TURNS);
+            return (score/turns)+ c*Math.sqrt( (2*Math.log((double)parentTurns))/turns);
         }
 
         /**
-         * Calculate the value "V" of all the child of the node and return the index the one with the biggest value
-         * @param c (double): A parameter used in the formula to calculate the value "V" 
-         * @return (int): the index of the best child 
+         * Calculate the value "V" of all the existing children of the node and return the index the one with the biggest value
+         * @param c (double): A parameter used in the formula to calculate the value "V"
+         * @return (int): the index of the best child, or -1 if no child exists yet
          */
         private int findBestChild(double c) {
-            double bestV=0;
-            int index =0;
-            for (int i =0; i<childsOfNode.length; ++i) {
-                if (childsOfNode[i]!= null) {
-                    double tmpV = childsOfNode[i].calculateV(this, c);
-                    if (tmpV >bestV) {
-                        bestV= tmpV;
-                        index=i;
+            long parentTurns = turns();
+            double bestV = 0;
+            int index = -1;
+            for (int i=0; i<childsOfNode.length(); ++i) {
+                SharedNode child = childsOfNode.get(i);
+                if (child != null) {
+                    double tmpV = child.calculateV(parentTurns, c);
+                    if (tmpV > bestV || index < 0) {
+                        bestV = tmpV;
+                        index = i;
                     }
                 }
             }
@@ -12,6 +12,8 @@ public final class PacedPlayer implements Player {
     private Player underlyingPlayer;
     private double minTime;
 
+    private final static double NANOSECONDS_PER_SECOND = 1e9;
+
 
     /**
      * Constructor of PacedPlayer
@@ -26,12 +28,14 @@ public final class PacedPlayer implements Player {
 
     /**
      * Calls the method cardToPlay of the underlying player but return the card 
-     *  only after minTime time
+     *  only after minTime time. The end of this time is given to the underlying player as a deadline,
+     *  so that a player able to search until then (like an anytime MctsPlayer) uses it instead of waiting
      */
     @Override
     public Card cardToPlay(TurnState state, CardSet hand) {
         long time = System.currentTimeMillis();
-        Card cardToPlay= underlyingPlayer.cardToPlay(state, hand);
+        long deadline = System.nanoTime()+(long)(minTime*NANOSECONDS_PER_SECOND);
+        Card cardToPlay= underlyingPlayer.cardToPlay(state, hand, deadline);
         
         // make sure that the method takes at least minTime seconds before returning the card
         try {
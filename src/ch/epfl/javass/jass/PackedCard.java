@@ -14,6 +14,15 @@ public final class PackedCard {
     private static final int START_RANK=0 , SIZE_RANK=4;
     private static final int START_COLOR=4 , SIZE_COLOR=2;  
     private static final int START_UNSUED=6, SIZE_UNSUED=26;
+
+    //The number of packed representations of a card (valid or not), used as the size of the tables
+    private static final int PACKED_CARDS = 1 << (SIZE_RANK+SIZE_COLOR);
+
+    //The points of each card for each trump, and for each trump and each card the set of the cards it beats
+    //(bit pkCardR of BETTER[trump][pkCardL] is set if pkCardL is better than pkCardR)
+    private static final int[][] POINTS = pointsTable();
+    private static final long[][] BETTER = betterTable();
+
     /**
      * Constructor of PackedCard
      */
@@ -83,6 +92,26 @@ public final class PackedCard {
      */
 
     public static int points(Card.Color trump, int pkCard) {
+        return POINTS[trump.ordinal()][pkCard];
+    }
+
+    /**
+     * Gives the point given by the card, read in a table (fast path for the tricks and the simulated turns)
+     * @param trump (int): the ordinal of the trump
+     * @param pkCard (int): the specified card with its packed representation
+     * @return (int): the point given by the card
+     */
+    public static int points(int trump, int pkCard) {
+        return POINTS[trump][pkCard];
+    }
+
+    /**
+     * Computes the point given by the card
+     * @param trump (Color): The color which is the trump
+     * @param pkCard (int): the specified card with its packed representation
+     * @return (int): the point given by the card
+     */
+    private static int computePoints(Card.Color trump, int pkCard) {
 
         int rank=Bits32.extract(pkCard, START_RANK, SIZE_RANK);
 
@@ -115,6 +144,29 @@ public final class PackedCard {
      * @return (boolean): True if the first card is better, false otherwise
      */
     public static boolean isBetter(Card.Color trump, int pkCardL, int pkCardR) {
+        return isBetter(trump.ordinal(), pkCardL, pkCardR);
+    }
+
+    /**
+     * Compares the rank of the card pkCardL with the rank of the card pkCardR, reading the result in a table
+     * (fast path for the tricks and the simulated turns)
+     * @param trump (int): the ordinal of the trump
+     * @param pkCardL (int): The packed representation of the first card involved in the comparison
+     * @param pkCardR (int): The packed representation of the second card involved in the comparison
+     * @return (boolean): True if the first card is better, false otherwise
+     */
+    public static boolean isBetter(int trump, int pkCardL, int pkCardR) {
+        return (BETTER[trump][pkCardL] & (1L << pkCardR)) != 0;
+    }
+
+    /**
+     * Compares the rank of the card pkCardL with the rank of the card pkCardR
+     * @param trump (Color): The color which is the trump
+     * @param pkCardL (int): The packed representation of the first card involved in the comparison
+     * @param pkCardR (int): The packed representation of the second card involved in the comparison
+     * @return (boolean): True if the first card is better, false otherwise
+     */
+    private static boolean computeIsBetter(Card.Color trump, int pkCardL, int pkCardR) {
 
         if(color(pkCardL).equals(color(pkCardR))) {
             if(color(pkCardL).equals(trump)) {
@@ -145,6 +197,41 @@ public final class PackedCard {
     }
 
 
+    /**
+     * Creates the table of the points of each valid card for each trump
+     * @return (int[][]): the points, indexed by the ordinal of the trump and the packed card
+     */
+    private static int[][] pointsTable() {
+        int[][] points = new int[Card.Color.COUNT][PACKED_CARDS];
+        for (Card.Color trump: Card.Color.ALL) {
+            for (Card.Color c: Card.Color.ALL) {
+                for (Card.Rank r: Card.Rank.ALL) {
+                    int pkCard = pack(c, r);
+                    points[trump.ordinal()][pkCard] = computePoints(trump, pkCard);
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Creates the table of the cards beaten by each valid card for each trump
+     * @return (long[][]): the sets of cards beaten, indexed by the ordinal of the trump and the packed card
+     */
+    private static long[][] betterTable() {
+        long[][] better = new long[Card.Color.COUNT][PACKED_CARDS];
+        for (Card.Color trump: Card.Color.ALL) {
+            for (int pkCardL = 0; pkCardL < PACKED_CARDS; ++pkCardL) {
+                for (int pkCardR = 0; pkCardR < PACKED_CARDS; ++pkCardR) {
+                    if (isValid(pkCardL) && isValid(pkCardR) && computeIsBetter(trump, pkCardL, pkCardR)) {
+                        better[trump.ordinal()][pkCardL] |= 1L << pkCardR;
+                    }
+                }
+            }
+        }
+        return better;
+    }
+
     /**
      * Returns a representation of the card given as a string with first the symbol of the color followed by the
      * initial of the rank of the card
@@ -1,5 +1,7 @@
 package ch.epfl.javass.jass;
 
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 import java.util.StringJoiner;
 
 import ch.epfl.javass.bits.Bits64;
@@ -32,6 +34,14 @@ public final class PackedCardSet {
     // The array that is used by trumpAbove
     public static final long [][] TAB_FOR_TRUMPABOVE =  tabForTrumpAbove();
 
+    //Masks used by get to count the cards of each byte of a set
+    private static final long EVERY_SECOND_BIT = 0x5555555555555555L, EVERY_TWO_BITS = 0x3333333333333333L, EVERY_FOUR_BITS = 0x0F0F0F0F0F0F0F0FL;
+    private static final long LOWEST_BIT_OF_BYTES = 0x0101010101010101L, HIGHEST_BIT_OF_BYTES = 0x8080808080808080L;
+    private static final int BYTE_MASK = 0xFF;
+
+    //The array that is used by get: the position of the i-th bit set in each byte b, at index 8*b+i
+    private static final byte[] SELECT_IN_BYTE = selectInByte();
+
     /**
      * Constructor of the class PackedCardSet
      */
@@ -89,6 +99,16 @@ public final class PackedCardSet {
         return Long.bitCount(pkCardSet);
     }
 
+    /**
+     * Give the index of the given card in the set (ordered in an increasing order), the inverse of get
+     * @param pkCardSet (long): the packed representation of the card set
+     * @param pkCard (int): the packed representation of the card
+     * @return (int): the number of cards of the set smaller than the card
+     */
+    public static int indexOf(long pkCardSet, int pkCard) {
+        return Long.bitCount(pkCardSet & (singleton(pkCard)-1));
+    }
+
     /**
      * Give the the index-th card from the set (ordered in an increasing order)  
      * @param pkCardSet (long): the packed representation of the card set
@@ -96,11 +116,48 @@ public final class PackedCardSet {
      * @return (int): the packed representation of the wanted Card
      */
     public static int get(long pkCardSet, int index) {
-        for (int i=0; i<index; ++i) {
-            long lowestOneBits= Long.lowestOneBit(pkCardSet);
-            pkCardSet = pkCardSet ^ lowestOneBits;
-        }
-        return Long.numberOfTrailingZeros(pkCardSet);
+        //Number of cards in each byte, then in each byte and the ones below it
+        long counts = pkCardSet - ((pkCardSet >>> 1) & EVERY_SECOND_BIT);
+        counts = (counts & EVERY_TWO_BITS) + ((counts >>> 2) & EVERY_TWO_BITS);
+        counts = (counts + (counts >>> 4)) & EVERY_FOUR_BITS;
+        long cumulatedCounts = counts * LOWEST_BIT_OF_BYTES;
+
+        //The byte containing the card is the first one whose cumulated count is above the index: the number of
+        //bytes below it is the number of bytes whose count is at most the index (the counts being under 128,
+        //the subtractions of the bytes do not interfere)
+        long atMostIndex = ((index * LOWEST_BIT_OF_BYTES | HIGHEST_BIT_OF_BYTES) - cumulatedCounts) & HIGHEST_BIT_OF_BYTES;
+        int shift = Long.bitCount(atMostIndex) * Byte.SIZE;
+        int cardsBelow = (int)((cumulatedCounts << Byte.SIZE) >>> shift) & BYTE_MASK;
+        int byteOfCard = (int)(pkCardSet >>> shift) & BYTE_MASK;
+
+        return shift + SELECT_IN_BYTE[byteOfCard * Byte.SIZE + index - cardsBelow];
+    }
+
+    /**
+     * Gives an iterator over the cards of the given set, in increasing order, each card being found in a
+     * constant time (instead of calling get for each index)
+     * @param pkCardSet (long): the packed representation of the card set
+     * @return (PrimitiveIterator.OfInt): the iterator over the packed cards of the set
+     */
+    public static PrimitiveIterator.OfInt iterator(long pkCardSet) {
+        return new PrimitiveIterator.OfInt() {
+            private long remaining = pkCardSet;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != EMPTY;
+            }
+
+            @Override
+            public int nextInt() {
+                if (remaining == EMPTY) {
+                    throw new NoSuchElementException();
+                }
+                int pkCard = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining-1;
+                return pkCard;
+            }
+        };
     }
 
     /**
@@ -197,9 +254,8 @@ public final class PackedCardSet {
      */
     public static String toString(long pkCardSet) {
         StringJoiner cardString = new StringJoiner(",", "{", "}");
-        int sizeOfCardSet = size(pkCardSet);
-        for(int i=0;i<sizeOfCardSet;++i) {
-            cardString.add(PackedCard.toString(get(pkCardSet, i)));
+        for(PrimitiveIterator.OfInt cards = iterator(pkCardSet); cards.hasNext();) {
+            cardString.add(PackedCard.toString(cards.nextInt()));
         }
         return cardString.toString();
     }
@@ -217,6 +273,25 @@ public final class PackedCardSet {
         return tab;
     }
 
+    /**
+     * Creates the array SELECT_IN_BYTE, which gives for each of the 256 bytes the position of its i-th bit set
+     * (the other entries being unused)
+     * @return (byte[]): the array of positions, the one of the i-th bit set of the byte b being at index 8*b+i
+     */
+    private static byte[] selectInByte() {
+        byte[] positions = new byte[(BYTE_MASK+1) * Byte.SIZE];
+        for (int b=0; b<=BYTE_MASK; ++b) {
+            int i=0;
+            for (int bit=0; bit<Byte.SIZE; ++bit) {
+                if ((b & (1 << bit)) != 0) {
+                    positions[b * Byte.SIZE + i] = (byte)bit;
+                    ++i;
+                }
+            }
+        }
+        return positions;
+    }
+
     /**
      * Create the table for trump above which contains for each possible card the set
      * containing all the card that are better given that it's a card of the trump color 
@@ -0,0 +1,692 @@
+package ch.epfl.javass.jass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.Preconditions;
+
+/**
+ * Class that represent the tree of the MCTS algorithm, the search engine used by the MctsPlayer and by the Helpers,
+ * stored in flat arrays (one array per information of a node)
+ * and working only on the packed representations of the turn state, so that once the arrays are big enough
+ * an iteration does not allocate any object.
+ * The tree can be reused for several searches, the arrays growing only when a search needs more nodes than
+ * the previous ones, and between two searches it can follow the cards played: the subtree of the card played
+ * becomes the tree (keeping its statistics) and the nodes of the other subtrees are recycled.
+ * With information sets, each iteration first deals the hidden cards between the other players (consistently
+ * with the constraints known on their hands) and only goes through the children playable with this deal; the value
+ * of a child then uses the number of iterations in which it was playable instead of the visits of its parent.
+ * With a transposition table, the nodes at the start of a trick (the only states that several paths can reach, the
+ * cards of a trick being in the order of its players) share their statistics with the other nodes of the same state:
+ * the mean score of a child is the one of its entry when the entry has more finished turns than the child.
+ */
+public final class PackedMctsTree {
+
+    private final static int VALUE_C = 40;
+    private final static int INITIAL_CAPACITY = 1024;
+    private final static int NO_NODE = -1;
+
+    //The coefficient of the half-width of a 95% confidence interval (normal approximation)
+    private final static double CONFIDENCE_95 = 1.96;
+
+    //The maximal depth of a path: the root and one node per card of the turn
+    private final static int MAX_PATH_LENGTH = Jass.TRICKS_PER_TURN*PlayerId.COUNT+1;
+
+    private final PlayerId ownId;
+
+    //The constraints on the hands of the other players, null if the tree does not use information sets
+    private final HandConstraints constraints;
+    private final long[] hands = new long[PlayerId.COUNT];
+    private final int[] counts = new int[PlayerId.COUNT];
+
+    //The hand of the player at the root, its hand at a node being the cards of this hand still unplayed
+    private long rootHand;
+    private long rootCards;
+    private int size;
+
+    //The state of the turn of each node
+    private long[] pkScore;
+    private long[] pkUnplayed;
+    private int[] pkTrick;
+
+    //The cards of the children not created yet and the card played to reach each node
+    private long[] inexistantNodes;
+    private int[] card;
+
+    //The statistics of each node
+    private int[] score;
+    private long[] squares;
+    private int[] visits;
+
+    //The number of iterations in which each node was playable (only with information sets)
+    private int[] available;
+
+    //The children of a node: its first child, then the next sibling of each child
+    private int[] firstChild;
+    private int[] nextSibling;
+
+    private final int[] path = new int[MAX_PATH_LENGTH];
+
+    //The new index of each node when a subtree is moved to the beginning of the arrays
+    private int[] newIndex;
+
+    //The transposition table (null if the tree does not use one) and the entry of each node in it
+    private final TranspositionTable table;
+    private int[] entry;
+
+    /**
+     * Constructor of PackedMctsTree
+     * @param ownId (PlayerId): the identity of the player doing the search
+     */
+    public PackedMctsTree(PlayerId ownId) {
+        this(ownId, false);
+    }
+
+    /**
+     * Constructor of PackedMctsTree
+     * @param ownId (PlayerId): the identity of the player doing the search
+     * @param informationSets (boolean): true if the iterations are done on deals of the hidden cards
+     */
+    PackedMctsTree(PlayerId ownId, boolean informationSets) {
+        this(ownId, informationSets, null);
+    }
+
+    /**
+     * Constructor of PackedMctsTree
+     * @param ownId (PlayerId): the identity of the player doing the search
+     * @param informationSets (boolean): true if the iterations are done on deals of the hidden cards
+     * @param table (TranspositionTable): the transposition table, null to use none (always null with information sets)
+     * @throws IllegalArgumentException: if a transposition table is given with information sets
+     */
+    PackedMctsTree(PlayerId ownId, boolean informationSets, TranspositionTable table) {
+        Preconditions.checkArgument(table == null || !informationSets);
+        this.ownId = ownId;
+        this.table = table;
+        constraints = informationSets ? new HandConstraints() : null;
+        pkScore = new long[INITIAL_CAPACITY];
+        pkUnplayed = new long[INITIAL_CAPACITY];
+        pkTrick = new int[INITIAL_CAPACITY];
+        inexistantNodes = new long[INITIAL_CAPACITY];
+        card = new int[INITIAL_CAPACITY];
+        score = new int[INITIAL_CAPACITY];
+        squares = new long[INITIAL_CAPACITY];
+        visits = new int[INITIAL_CAPACITY];
+        available = new int[INITIAL_CAPACITY];
+        firstChild = new int[INITIAL_CAPACITY];
+        nextSibling = new int[INITIAL_CAPACITY];
+        newIndex = new int[INITIAL_CAPACITY];
+        entry = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Empties the tree and creates its root
+     * @param state (TurnState): the state of the turn at the root
+     * @param hand (CardSet): the hand of the player at the root
+     */
+    public void reset(TurnState state, CardSet hand) {
+        size = 0;
+        rootHand = hand.packed();
+        if (table != null) {
+            table.newSearch();
+        }
+        newNode(state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), PackedCard.INVALID);
+        rootCards = inexistantNodes[0];
+    }
+
+    /**
+     * Gives to a tree using information sets the constraints on the hands of the other players
+     * @param handConstraints (HandConstraints): the constraints known by the player
+     */
+    void setConstraints(HandConstraints handConstraints) {
+        constraints.setTo(handConstraints);
+    }
+
+    /**
+     * Says if the root of the tree is the given state with the given hand, in which case the search can continue
+     * from the current tree instead of resetting it
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of the player
+     * @return (boolean): true if the tree can be reused for this state
+     */
+    boolean canReuse(TurnState state, CardSet hand) {
+        return size > 0
+                && pkScore[0] == state.packedScore()
+                && pkUnplayed[0] == state.packedUnplayedCards()
+                && pkTrick[0] == state.packedTrick()
+                && PackedCardSet.intersection(rootHand, pkUnplayed[0]) == hand.packed();
+    }
+
+    /**
+     * Follows the given card played from the root: its child becomes the root, or the tree is emptied
+     * if this child was never created
+     * @param pkCard (int): the packed card played
+     */
+    void play(int pkCard) {
+        if (size == 0) {
+            return;
+        }
+        if (table != null) {
+            table.newSearch();
+        }
+        int child = child(0, pkCard);
+        if (child == NO_NODE) {
+            size = 0;
+        }
+        else {
+            promote(child);
+        }
+    }
+
+    /**
+     * Empties the tree if the given hand does not come from the hand of the root (a new turn started)
+     * @param pkHand (long): the new packed hand of the player
+     */
+    void updateHand(long pkHand) {
+        if (PackedCardSet.difference(pkHand, rootHand) != PackedCardSet.EMPTY) {
+            size = 0;
+        }
+    }
+
+    /**
+     * Gives the number of iterations done from the root, including the ones done before it was promoted
+     * @return (int): the number of finished turns of the root
+     */
+    public int rootVisits() {
+        return visits[0];
+    }
+
+    /**
+     * Gives the child of the root with the best mean score
+     * @return (int): the packed representation of the card leading to this child
+     */
+    int bestCard() {
+        return card[findBestChild(0, 0)];
+    }
+
+    /**
+     * Gives the statistics of each card playable from the root, in the order of the cards
+     * @return (List<CardStatistics>): the statistics of the children of the root (unmodifiable)
+     */
+    public List<CardStatistics> rootStatistics() {
+        List<CardStatistics> statistics = new ArrayList<>();
+        for (PrimitiveIterator.OfInt cards = PackedCardSet.iterator(rootCards); cards.hasNext();) {
+            int pkCard = cards.nextInt();
+            int child = child(0, pkCard);
+            statistics.add(child == NO_NODE
+                    ? new CardStatistics(Card.ofPacked(pkCard), 0, 0, 0)
+                    : new CardStatistics(Card.ofPacked(pkCard), visits[child], score[child], squares[child]));
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * Adds the score and the number of finished turns of each child of the root to the given arrays,
+     * at the index of the card of the child in the set of playable cards of the root
+     * @param scores (long[]): the scores of the children
+     * @param turns (long[]): the finished turns of the children
+     */
+    void addRootStatistics(long[] scores, long[] turns) {
+        for (int child = firstChild[0]; child != NO_NODE; child = nextSibling[child]) {
+            int index = PackedCardSet.size(PackedCardSet.intersection(rootCards, PackedCardSet.singleton(card[child])-1));
+            scores[index] += score[child];
+            turns[index] += visits[child];
+        }
+    }
+
+    /**
+     * Adds the number of finished turns of each child of the root to the given array, at the index of the card of
+     * the child in the set of all the cards
+     * @param visitsPerCard (int[]): the finished turns of the children, indexed by the cards (of size 36)
+     */
+    void addRootVisits(int[] visitsPerCard) {
+        for (int child = firstChild[0]; child != NO_NODE; child = nextSibling[child]) {
+            visitsPerCard[PackedCardSet.indexOf(PackedCardSet.ALL_CARDS, card[child])] += visits[child];
+        }
+    }
+
+    /**
+     * Finds the node to explore, adds a child to it (if possible), simulates a random turn from this child
+     * and updates the statistics of all the nodes of the path
+     * @param rng (SplittableRandom): the random generator used for the simulated turn
+     */
+    public void iterate(SplittableRandom rng) {
+        if (constraints != null) {
+            iterateOnDeal(rng);
+            return;
+        }
+        int length = 0;
+        int node = 0;
+
+        while (inexistantNodes[node] == PackedCardSet.EMPTY && pkTrick[node] != PackedTrick.INVALID) {
+            path[length++] = node;
+            node = findBestChild(node, VALUE_C);
+        }
+        path[length++] = node;
+
+        long turnScore;
+        if (pkTrick[node] == PackedTrick.INVALID) {
+            turnScore = pkScore[node];
+        }
+        else {
+            //The smallest card without a child is the one of the new child
+            int newCard = PackedCardSet.get(inexistantNodes[node], 0);
+            inexistantNodes[node] = PackedCardSet.remove(inexistantNodes[node], newCard);
+            int child = newChild(node, newCard);
+
+            turnScore = PackedRollout.randomTurn(pkScore[child], pkUnplayed[child], pkTrick[child], rootHand, ownId, rng);
+            addTurn(child, PackedScore.turnPoints(turnScore, nextPlayer(pkTrick[node]).team()));
+            //The new child is not in the path: its entry gets the simulated turn here, as its statistics
+            if (table != null && hasEntry(child)) {
+                table.addTurn(entry[child], turnScore);
+            }
+        }
+
+        updatePath(length, turnScore);
+    }
+
+    /**
+     * Does an iteration with information sets: deals the hidden cards, finds the node to explore going only
+     * through the cards playable with this deal, adds a child to it (if possible), simulates a random turn
+     * with the dealt hands from this child and updates the statistics of all the nodes of the path
+     * @param rng (SplittableRandom): the random generator used for the deal and the simulated turn
+     */
+    private void iterateOnDeal(SplittableRandom rng) {
+        deal(rng);
+
+        int length = 0;
+        int node = 0;
+        long turnScore;
+        while (true) {
+            path[length++] = node;
+            int trick = pkTrick[node];
+            if (trick == PackedTrick.INVALID) {
+                turnScore = pkScore[node];
+                break;
+            }
+
+            int player = nextPlayer(trick).ordinal();
+            long playable = PackedTrick.playableCards(trick, hands[player]);
+            long untried = PackedCardSet.intersection(playable, inexistantNodes[node]);
+            if (untried != PackedCardSet.EMPTY) {
+                //The smallest playable card without a child is the one of the new child
+                int newCard = PackedCardSet.get(untried, 0);
+                inexistantNodes[node] = PackedCardSet.remove(inexistantNodes[node], newCard);
+                hands[player] = PackedCardSet.remove(hands[player], newCard);
+                int child = newChild(node, newCard);
+
+                turnScore = PackedRollout.randomTurn(pkScore[child], pkTrick[child], hands, rng);
+                addTurn(child, PackedScore.turnPoints(turnScore, PlayerId.ALL.get(player).team()));
+                available[child] = 1;
+                break;
+            }
+
+            node = findBestPlayableChild(node, playable, VALUE_C);
+            hands[player] = PackedCardSet.remove(hands[player], card[node]);
+        }
+
+        updatePath(length, turnScore);
+    }
+
+    /**
+     * Adds the points of the simulated turn to the statistics of the nodes of the path
+     * @param length (int): the number of nodes of the path
+     * @param turnScore (long): the packed score at the end of the simulated turn
+     */
+    private void updatePath(int length, long turnScore) {
+        addTurn(path[0], PackedScore.turnPoints(turnScore, ownId.team().other()));
+        for (int i=1; i<length; ++i) {
+            addTurn(path[i], PackedScore.turnPoints(turnScore, nextPlayer(pkTrick[path[i-1]]).team()));
+        }
+        if (table != null) {
+            for (int i=0; i<length; ++i) {
+                int node = path[i];
+                if (hasEntry(node)) {
+                    table.addTurn(entry[node], turnScore);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a finished turn to the statistics of the given node
+     * @param node (int): the node
+     * @param points (int): the points of the team that played the card leading to the node
+     */
+    private void addTurn(int node, int points) {
+        score[node] += points;
+        squares[node] += (long)points*points;
+        visits[node] += 1;
+    }
+
+    /**
+     * Deals the cards the player does not know between the other players: each one receives as many cards as it
+     * still has to play in the turn of the root
+     * @param rng (SplittableRandom): the random generator used for the deal
+     */
+    private void deal(SplittableRandom rng) {
+        int trick = pkTrick[0];
+        if (trick == PackedTrick.INVALID) {
+            return;
+        }
+        for (PlayerId p: PlayerId.ALL) {
+            counts[p.ordinal()] = Jass.TRICKS_PER_TURN-PackedTrick.index(trick);
+        }
+        for (int i=0; i<PackedTrick.size(trick); ++i) {
+            --counts[PackedTrick.player(trick, i).ordinal()];
+        }
+
+        long ownHand = PackedCardSet.intersection(rootHand, pkUnplayed[0]);
+        hands[ownId.ordinal()] = ownHand;
+        constraints.deal(PackedCardSet.difference(pkUnplayed[0], ownHand), counts, ownId, hands, rng);
+    }
+
+    /**
+     * Calculate the value "V" of the children of the given node reached by a playable card and return the one
+     * with the biggest value (the first one in case of equality), counting that these children were available.
+     * The exploration term uses the number of iterations in which the child was available
+     * @param node (int): the node, all its playable children existing
+     * @param playable (long): the packed set of the playable cards
+     * @param c (double): A parameter used in the formula to calculate the value "V"
+     * @return (int): the best playable child
+     */
+    private int findBestPlayableChild(int node, long playable, double c) {
+        double bestV = 0;
+        int best = NO_NODE;
+        for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+            if (!PackedCardSet.contains(playable, card[child])) {
+                continue;
+            }
+            available[child] += 1;
+            double turns = (double)visits[child];
+            double v = ((double)score[child]/turns) + c*Math.sqrt((2*Math.log((double)available[child]))/turns);
+            if (best == NO_NODE || v > bestV) {
+                bestV = v;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Calculate the value "V" of all the children of the given node and return the one with the biggest value
+     * (the first one in case of equality)
+     * @param node (int): the node
+     * @param c (double): A parameter used in the formula to calculate the value "V"
+     * @return (int): the best child
+     */
+    private int findBestChild(int node, double c) {
+        double bestV = 0;
+        int best = firstChild[node];
+        double logParentVisits = Math.log((double)visits[node]);
+        TeamId team = table == null ? null : nextPlayer(pkTrick[node]).team();
+        for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+            double turns = (double)visits[child];
+            double mean = (double)score[child]/turns;
+            if (table != null && hasEntry(child) && table.visits(entry[child]) > visits[child]) {
+                mean = (double)table.points(entry[child], team)/table.visits(entry[child]);
+            }
+            double v = mean + c*Math.sqrt((2*logParentVisits)/turns);
+            if (v > bestV) {
+                bestV = v;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Creates the child of the given node reached by playing the given card, as its last child
+     * @param parent (int): the parent node
+     * @param cardToPlay (int): the packed card played
+     * @return (int): the new child
+     */
+    private int newChild(int parent, int cardToPlay) {
+        long unplayed = PackedCardSet.remove(pkUnplayed[parent], cardToPlay);
+        long turnScore = pkScore[parent];
+        int trick = PackedTrick.withAddedCard(pkTrick[parent], cardToPlay);
+        if (PackedTrick.isFull(trick)) {
+            turnScore = PackedScore.withAdditionalTrick(turnScore, PackedTrick.winningPlayer(trick).team(), PackedTrick.points(trick));
+            trick = PackedTrick.nextEmpty(trick);
+        }
+
+        int child = newNode(turnScore, unplayed, trick, cardToPlay);
+
+        if (firstChild[parent] == NO_NODE) {
+            firstChild[parent] = child;
+        }
+        else {
+            int last = firstChild[parent];
+            while (nextSibling[last] != NO_NODE) {
+                last = nextSibling[last];
+            }
+            nextSibling[last] = child;
+        }
+        return child;
+    }
+
+    /**
+     * Creates a node without statistics nor children
+     * @param turnScore (long): the packed score of the state of the node
+     * @param unplayed (long): the packed set of unplayed cards of the state of the node
+     * @param trick (int): the packed trick of the state of the node
+     * @param cardPlayed (int): the packed card played to reach the node
+     * @return (int): the new node
+     */
+    private int newNode(long turnScore, long unplayed, int trick, int cardPlayed) {
+        if (size == visits.length) {
+            grow();
+        }
+        int node = size++;
+
+        pkScore[node] = turnScore;
+        pkUnplayed[node] = unplayed;
+        pkTrick[node] = trick;
+        card[node] = cardPlayed;
+        score[node] = 0;
+        squares[node] = 0;
+        visits[node] = 0;
+        available[node] = 0;
+        firstChild[node] = NO_NODE;
+        nextSibling[node] = NO_NODE;
+        entry[node] = table != null && trick != PackedTrick.INVALID && PackedTrick.isEmpty(trick)
+                ? table.entry(turnScore, unplayed, trick, PackedCardSet.intersection(rootHand, unplayed))
+                : TranspositionTable.NO_ENTRY;
+
+        inexistantNodes[node] = childCards(unplayed, trick);
+        return node;
+    }
+
+    /**
+     * Gives the cards of the children of a node depending on the next player (with information sets, any card
+     * of the other players can be playable depending on the deal)
+     * @param unplayed (long): the packed set of unplayed cards of the state of the node
+     * @param trick (int): the packed trick of the state of the node
+     * @return (long): the cards playable from the node
+     */
+    private long childCards(long unplayed, int trick) {
+        if (trick == PackedTrick.INVALID) {
+            return PackedCardSet.EMPTY;
+        }
+        long hand = PackedCardSet.intersection(rootHand, unplayed);
+        if (nextPlayer(trick) == ownId) {
+            return PackedTrick.playableCards(trick, hand);
+        }
+        long others = PackedCardSet.difference(unplayed, hand);
+        return constraints != null ? others : PackedTrick.playableCards(trick, others);
+    }
+
+    /**
+     * Makes the given node the root by moving its subtree to the beginning of the arrays, in the same order,
+     * the other nodes being overwritten by the next ones created.
+     * As a child is always created after its parent, one pass in increasing order finds all the nodes of the subtree,
+     * and a node is never moved to an index after its own, so the nodes not moved yet are never overwritten
+     * @param root (int): the new root
+     */
+    private void promote(int root) {
+        Arrays.fill(newIndex, root, size, NO_NODE);
+        newIndex[root] = 0;
+
+        int moved = 0;
+        for (int node = root; node < size; ++node) {
+            if (newIndex[node] == NO_NODE) {
+                continue;
+            }
+            newIndex[node] = moved++;
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                newIndex[child] = 0;
+            }
+        }
+
+        for (int node = root; node < size; ++node) {
+            int to = newIndex[node];
+            if (to == NO_NODE) {
+                continue;
+            }
+            pkScore[to] = pkScore[node];
+            pkUnplayed[to] = pkUnplayed[node];
+            pkTrick[to] = pkTrick[node];
+            inexistantNodes[to] = inexistantNodes[node];
+            card[to] = card[node];
+            score[to] = score[node];
+            squares[to] = squares[node];
+            visits[to] = visits[node];
+            available[to] = available[node];
+            entry[to] = entry[node];
+            firstChild[to] = firstChild[node] == NO_NODE ? NO_NODE : newIndex[firstChild[node]];
+            //The siblings of the new root are not moved
+            nextSibling[to] = node == root || nextSibling[node] == NO_NODE ? NO_NODE : newIndex[nextSibling[node]];
+        }
+
+        size = moved;
+        rootCards = childCards(pkUnplayed[0], pkTrick[0]);
+    }
+
+    /**
+     * Gives the child of the given node reached by playing the given card
+     * @param node (int): the node
+     * @param pkCard (int): the packed card
+     * @return (int): the child, NO_NODE if it does not exist
+     */
+    private int child(int node, int pkCard) {
+        int child = firstChild[node];
+        while (child != NO_NODE && card[child] != pkCard) {
+            child = nextSibling[child];
+        }
+        return child;
+    }
+
+    /**
+     * Doubles the capacity of all the arrays of the tree
+     */
+    private void grow() {
+        int capacity = 2*visits.length;
+        pkScore = Arrays.copyOf(pkScore, capacity);
+        pkUnplayed = Arrays.copyOf(pkUnplayed, capacity);
+        pkTrick = Arrays.copyOf(pkTrick, capacity);
+        inexistantNodes = Arrays.copyOf(inexistantNodes, capacity);
+        card = Arrays.copyOf(card, capacity);
+        score = Arrays.copyOf(score, capacity);
+        squares = Arrays.copyOf(squares, capacity);
+        visits = Arrays.copyOf(visits, capacity);
+        available = Arrays.copyOf(available, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        newIndex = new int[capacity];
+        entry = Arrays.copyOf(entry, capacity);
+    }
+
+    /**
+     * Says if the given node has an entry in the transposition table which is still the one of its state
+     * @param node (int): the node
+     * @return (boolean): true if the entry of the node can be used
+     */
+    private boolean hasEntry(int node) {
+        return entry[node] != TranspositionTable.NO_ENTRY
+                && table.holds(entry[node], pkScore[node], pkUnplayed[node], pkTrick[node], PackedCardSet.intersection(rootHand, pkUnplayed[node]));
+    }
+
+    /**
+     * Gives the next player to play in the given trick (which must not be full)
+     * @param trick (int): the packed trick
+     * @return (PlayerId): the next player
+     */
+    private static PlayerId nextPlayer(int trick) {
+        return PackedTrick.player(trick, PackedTrick.size(trick));
+    }
+
+    /**
+     * Represent the statistics of a card playable from the root of the tree: the number of simulated turns
+     * in which it was played and the points obtained by the team of the player in these turns
+     */
+    public static final class CardStatistics {
+
+        private final Card card;
+        private final int visits;
+        private final double meanScore;
+        private final double confidence;
+
+        /**
+         * Constructor of CardStatistics
+         * @param card (Card): the card
+         * @param visits (int): the number of simulated turns
+         * @param score (long): the sum of the points of these turns
+         * @param squares (long): the sum of the squares of the points of these turns
+         */
+        private CardStatistics(Card card, int visits, long score, long squares) {
+            this.card = card;
+            this.visits = visits;
+            meanScore = visits == 0 ? 0 : (double)score/visits;
+            if (visits < 2) {
+                confidence = Double.POSITIVE_INFINITY;
+            }
+            else {
+                double variance = Math.max(0, (double)squares/visits - meanScore*meanScore);
+                confidence = CONFIDENCE_95*Math.sqrt(variance/visits);
+            }
+        }
+
+        /**
+         * Gives the card
+         * @return (Card): the card
+         */
+        public Card card() {
+            return card;
+        }
+
+        /**
+         * Gives the number of simulated turns in which the card was played
+         * @return (int): the number of visits of the card
+         */
+        public int visits() {
+            return visits;
+        }
+
+        /**
+         * Gives the mean number of points obtained by the team of the player after playing the card
+         * @return (double): the mean score, 0 if the card was never played
+         */
+        public double meanScore() {
+            return meanScore;
+        }
+
+        /**
+         * Gives the half-width of the 95% confidence interval of the mean score
+         * @return (double): the confidence, infinite with less than two visits
+         */
+        public double confidence() {
+            return confidence;
+        }
+
+        /**
+         * Override of the method toString
+         */
+        @Override
+        public String toString() {
+            return card+": "+visits+" visits, "+String.format("%.1f", meanScore)+" +/- "+String.format("%.1f", confidence);
+        }
+    }
+}
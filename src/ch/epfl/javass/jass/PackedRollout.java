@@ -0,0 +1,184 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * Class which contains the simulation of random turns (the rollouts of the MCTS algorithm) working only on
+ * primitive values, so that a simulated turn does not allocate any object.
+ * Instead of rebuilding the packed trick after each card, the simulation keeps the state of the current trick
+ * (number of cards, winning card and points) up to date card after card, using the tables of PackedCard
+ * and PackedTrick
+ */
+public final class PackedRollout {
+
+    private static final int NO_CARD = PackedCard.INVALID;
+    private static final int BITS_FOR_RANK = 4;
+    //The number of players being a power of two, the player after the i-th one is given by a mask
+    private static final int PLAYER_MASK = PlayerId.COUNT-1;
+
+    //The team of each player
+    private static final TeamId[] TEAMS = teams();
+
+    /**
+     * Private constructor of PackedRollout
+     */
+    private PackedRollout() {}
+
+    /**
+     * Simulates a random turn from the given state: the given player plays a random playable card of its hand,
+     * and the other players a random playable card among the unplayed cards that are not in this hand.
+     * For the same random generator the cards chosen are the ones that the simulation working on TurnState chose
+     * @param pkScore (long): the packed score of the state
+     * @param pkUnplayed (long): the packed set of unplayed cards of the state
+     * @param pkTrick (int): the packed trick of the state
+     * @param pkHand (long): the packed hand of the given player
+     * @param player (PlayerId): the player whose hand is known
+     * @param rng (SplittableRandom): the random generator used to choose the cards
+     * @return (long): the packed score at the end of the turn
+     */
+    public static long randomTurn(long pkScore, long pkUnplayed, int pkTrick, long pkHand, PlayerId player, SplittableRandom rng) {
+        if (pkTrick == PackedTrick.INVALID) {
+            return pkScore;
+        }
+
+        int trump = PackedTrick.trump(pkTrick).ordinal();
+        int index = PackedTrick.index(pkTrick);
+        int firstPlayer = PackedTrick.player(pkTrick, 0).ordinal();
+        int ownPlayer = player.ordinal();
+        long hand = PackedCardSet.intersection(pkHand, pkUnplayed);
+
+        //The state of the current trick
+        int size = 0;
+        int baseColor = 0;
+        int bestCard = NO_CARD;
+        int bestIndex = 0;
+        int points = 0;
+        for (int i=0; i<PackedTrick.size(pkTrick); ++i) {
+            int card = PackedTrick.card(pkTrick, i);
+            if (size == 0) {
+                baseColor = card >>> BITS_FOR_RANK;
+            }
+            if (bestCard == NO_CARD || PackedCard.isBetter(trump, card, bestCard)) {
+                bestCard = card;
+                bestIndex = size;
+            }
+            points += PackedCard.points(trump, card);
+            ++size;
+        }
+
+        while (true) {
+            if (size == PackedTrick.MAX_CARD_PER_TRICK) {
+                int winner = (firstPlayer+bestIndex) & PLAYER_MASK;
+                if (index == PackedTrick.LAST_TRICK_INDEX) {
+                    return PackedScore.withAdditionalTrick(pkScore, TEAMS[winner], points+Jass.LAST_TRICK_ADDITIONAL_POINTS);
+                }
+                pkScore = PackedScore.withAdditionalTrick(pkScore, TEAMS[winner], points);
+                ++index;
+                firstPlayer = winner;
+                size = 0;
+                bestCard = NO_CARD;
+                points = 0;
+            }
+
+            boolean ownTurn = ((firstPlayer+size) & PLAYER_MASK) == ownPlayer;
+            long cards = ownTurn ? hand : PackedCardSet.difference(pkUnplayed, hand);
+            long playable = size == 0 ? cards : PackedTrick.playableCards(trump, baseColor, bestCard, cards);
+            int card = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+
+            pkUnplayed = PackedCardSet.remove(pkUnplayed, card);
+            if (ownTurn) {
+                hand = PackedCardSet.remove(hand, card);
+            }
+            if (size == 0) {
+                baseColor = card >>> BITS_FOR_RANK;
+            }
+            if (bestCard == NO_CARD || PackedCard.isBetter(trump, card, bestCard)) {
+                bestCard = card;
+                bestIndex = size;
+            }
+            points += PackedCard.points(trump, card);
+            ++size;
+        }
+    }
+
+    /**
+     * Simulates a random turn from the given state where the hand of every player is known: each player plays
+     * a random playable card of its own hand
+     * @param pkScore (long): the packed score of the state
+     * @param pkTrick (int): the packed trick of the state
+     * @param hands (long[]): the packed hands of the players, indexed by their ordinal (modified by the simulation)
+     * @param rng (SplittableRandom): the random generator used to choose the cards
+     * @return (long): the packed score at the end of the turn
+     */
+    public static long randomTurn(long pkScore, int pkTrick, long[] hands, SplittableRandom rng) {
+        if (pkTrick == PackedTrick.INVALID) {
+            return pkScore;
+        }
+
+        int trump = PackedTrick.trump(pkTrick).ordinal();
+        int index = PackedTrick.index(pkTrick);
+        int firstPlayer = PackedTrick.player(pkTrick, 0).ordinal();
+
+        //The state of the current trick
+        int size = 0;
+        int baseColor = 0;
+        int bestCard = NO_CARD;
+        int bestIndex = 0;
+        int points = 0;
+        for (int i=0; i<PackedTrick.size(pkTrick); ++i) {
+            int card = PackedTrick.card(pkTrick, i);
+            if (size == 0) {
+                baseColor = card >>> BITS_FOR_RANK;
+            }
+            if (bestCard == NO_CARD || PackedCard.isBetter(trump, card, bestCard)) {
+                bestCard = card;
+                bestIndex = size;
+            }
+            points += PackedCard.points(trump, card);
+            ++size;
+        }
+
+        while (true) {
+            if (size == PackedTrick.MAX_CARD_PER_TRICK) {
+                int winner = (firstPlayer+bestIndex) & PLAYER_MASK;
+                if (index == PackedTrick.LAST_TRICK_INDEX) {
+                    return PackedScore.withAdditionalTrick(pkScore, TEAMS[winner], points+Jass.LAST_TRICK_ADDITIONAL_POINTS);
+                }
+                pkScore = PackedScore.withAdditionalTrick(pkScore, TEAMS[winner], points);
+                ++index;
+                firstPlayer = winner;
+                size = 0;
+                bestCard = NO_CARD;
+                points = 0;
+            }
+
+            int player = (firstPlayer+size) & PLAYER_MASK;
+            long cards = hands[player];
+            long playable = size == 0 ? cards : PackedTrick.playableCards(trump, baseColor, bestCard, cards);
+            int card = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+
+            hands[player] = PackedCardSet.remove(cards, card);
+            if (size == 0) {
+                baseColor = card >>> BITS_FOR_RANK;
+            }
+            if (bestCard == NO_CARD || PackedCard.isBetter(trump, card, bestCard)) {
+                bestCard = card;
+                bestIndex = size;
+            }
+            points += PackedCard.points(trump, card);
+            ++size;
+        }
+    }
+
+    /**
+     * Creates the table of the team of each player
+     * @return (TeamId[]): the team of each player
+     */
+    private static TeamId[] teams() {
+        TeamId[] teams = new TeamId[PlayerId.COUNT];
+        for (PlayerId p: PlayerId.ALL) {
+            teams[p.ordinal()] = p.team();
+        }
+        return teams;
+    }
+}
@@ -12,6 +12,7 @@ public final class PackedTrick {
     public static final int BITS_FOR_CARD = 6, CARD1_START_BITS = 0, CARD2_START_BITS = 6, CARD3_START_BITS = 12, CARD4_START_BITS = 18;
     public static final int BITS_FOR_PLAYER=2, BITS_START_PLAYER=28; 
     public static final int BITS_FOR_TRUMP=2, BITS_START_TRUMP=30;
+    private static final int BITS_FOR_CARD_RANK = 4;
     public static final int LAST_TRICK_INDEX = Jass.TRICKS_PER_TURN-1;
 
 
@@ -19,6 +20,18 @@ public final class PackedTrick {
 
     public static final int INVALID = Bits32.mask(CARD1_START_BITS, Integer.SIZE);
 
+    //The first bit of each card slot, and a bit just after the last slot (the cards being placed in order,
+    //the first empty slot gives the size of the trick)
+    private static final int FIRST_BITS_OF_SLOTS = 1 << CARD1_START_BITS | 1 << CARD2_START_BITS | 1 << CARD3_START_BITS | 1 << CARD4_START_BITS;
+    private static final int AFTER_LAST_SLOT = 1 << (BITS_FOR_CARD*MAX_CARD_PER_TRICK);
+
+    //Tables of playableCards: the set of the cards of each color, the trumps going over the winning card, indexed by the
+    //ordinal of the trump and the packed winning card (all the trumps if it is not a trump), and the jack of trump alone,
+    //indexed by the ordinals of the trump and of the base color (an impossible set if the base color is not trump)
+    private static final long[] COLOR_SETS = colorSets();
+    private static final long[][] TRUMPS_ABOVE = trumpsAbove();
+    private static final long[][] LONE_JACK = loneJack();
+
     private PackedTrick() {}
 
     /**
@@ -103,10 +116,7 @@ public final class PackedTrick {
      * @return (boolean): true if the trick is full, false otherwise
      */
     public static boolean isFull(int pkTrick) {
-        if(size(pkTrick)==MAX_CARD_PER_TRICK) {
-            return true;
-        } 
-        return false;
+        return card(pkTrick, MAX_CARD_PER_TRICK-1)!=PackedCard.INVALID;
     }
 
     /**
@@ -115,12 +125,11 @@ public final class PackedTrick {
      * @return (int): the number of cards contained in the trick
      */
     public static int size(int pkTrick) {
-        
-        int size =0;
-        for(int i=0; i<MAX_CARD_PER_TRICK; ++i ) {
-            if (card(pkTrick,i)!=PackedCard.INVALID) {++size;}
-        }
-        return size;
+        //A slot is empty iff its six bits are set: after the "and" of each bit with the five next ones, the first
+        //bit of an empty slot is the only one of the slot to be set
+        int pairs = pkTrick & (pkTrick >>> 1);
+        int emptySlots = pairs & (pairs >>> 2) & (pairs >>> 4) & FIRST_BITS_OF_SLOTS;
+        return Integer.numberOfTrailingZeros(emptySlots | AFTER_LAST_SLOT)/BITS_FOR_CARD;
     }
 
     /**
@@ -196,9 +205,11 @@ public final class PackedTrick {
      * @return (int): the value of the trick
      */ 
     public static int points(int pkTrick) {
+        int trump = trump(pkTrick).ordinal();
         int trickPoints =0;
-        for (int i=0; i<size(pkTrick); ++i) {
-            trickPoints += PackedCard.points(trump(pkTrick), card(pkTrick,i));
+        int size = size(pkTrick);
+        for (int i=0; i<size; ++i) {
+            trickPoints += PackedCard.points(trump, card(pkTrick,i));
         }
         if(isLast(pkTrick)) {trickPoints +=Jass.LAST_TRICK_ADDITIONAL_POINTS;}
         return trickPoints;
@@ -210,15 +221,7 @@ public final class PackedTrick {
      * @return (PlayerId): the player leading the trick
      */
     public static PlayerId winningPlayer(int pkTrick) {
-        int index =0;
-        int bestCard = card(pkTrick,0);
-        for (int i=0; i< size(pkTrick); ++i) {
-            if (PackedCard.isBetter(trump(pkTrick),card(pkTrick,i) , bestCard)) {
-                bestCard = card(pkTrick,i);
-                index =i;
-            }
-        }
-        return player(pkTrick, index);  
+        return player(pkTrick, winningIndex(pkTrick));
     }
 
 
@@ -234,30 +237,38 @@ public final class PackedTrick {
         if(card(pkTrick,0)==PackedCard.INVALID) {
             return pkHand;
         }
+        int trump = Bits32.extract(pkTrick, BITS_START_TRUMP, BITS_FOR_TRUMP);
+        int baseColor = card(pkTrick, 0) >>> BITS_FOR_CARD_RANK;
+        return playableCards(trump, baseColor, card(pkTrick, winningIndex(pkTrick)), pkHand);
+    }
 
-        //Dividing the hand in four set of card depending on the "nature" of the card
-        Color trump = trump(pkTrick);
-        long setOfTrump = PackedCardSet.subsetOfColor(pkHand, trump);
-        long setOfHigherTrump = findTrumpAbove( pkTrick, pkHand,trump);
-        long setOfLowerTrump = PackedCardSet.difference(setOfTrump, setOfHigherTrump);
-        long setOfBaseColor = PackedCardSet.subsetOfColor(pkHand, baseColor(pkTrick));
-        long setOfOtherColor = PackedCardSet.difference(pkHand, PackedCardSet.union(setOfTrump, setOfBaseColor));
-
-        //Test to return the good set of card
-        if (setOfTrump == PackedCardSet.singleton(PackedCard.pack(trump, Rank.JACK))&& baseColor(pkTrick) == trump){
+    /**
+     * Returns the cards of a hand that can be played in a trick which is not empty, given only what the rules depend on.
+     * As soon as a trump is played the winning card is the best trump of the trick, so the cards to play are found
+     * with a few operations on the hand and the sets of the tables
+     * @param trump (int): the ordinal of the trump
+     * @param baseColor (int): the ordinal of the base color of the trick
+     * @param winningCard (int): the packed card currently winning the trick
+     * @param pkHand (long): the packed representation of the hand of cards
+     * @return (long): all the cards of the hand that can be played
+     */
+    public static long playableCards(int trump, int baseColor, int winningCard, long pkHand) {
+        long setOfTrump = pkHand & COLOR_SETS[trump];
+        if (setOfTrump == LONE_JACK[trump][baseColor]) {
             return pkHand;
         }
-        else if(setOfBaseColor!=PackedCardSet.EMPTY ) {
-            return PackedCardSet.union(setOfBaseColor, setOfHigherTrump);
-        }
-        else if(setOfOtherColor!=PackedCardSet.EMPTY) {
-            return PackedCardSet.union(setOfOtherColor,setOfHigherTrump);
+        long setOfHigherTrump = pkHand & TRUMPS_ABOVE[trump][winningCard];
 
+        //The cards of the base color if there are some, otherwise the ones of the other colors
+        long setToFollow = pkHand & COLOR_SETS[baseColor];
+        if (setToFollow == PackedCardSet.EMPTY) {
+            setToFollow = pkHand & ~(COLOR_SETS[trump] | COLOR_SETS[baseColor]);
         }
-        else if(setOfHigherTrump!=PackedCardSet.EMPTY) {
-            return setOfHigherTrump;
+
+        if (setToFollow != PackedCardSet.EMPTY) {
+            return setToFollow | setOfHigherTrump;
         }
-        else {return setOfLowerTrump; }
+        return setOfHigherTrump != PackedCardSet.EMPTY ? setOfHigherTrump : setOfTrump;
     }
 
     /**
@@ -276,31 +287,66 @@ public final class PackedTrick {
     }
 
     /**
-     * Spare method to extract all the trump cards of the hand that are higher than the highest trump card placed in the trick
-     * @param pkTrick (int): the packed representation of a trick
-     * @param pkHand (long): the packed representation of a hand
-     * @return (Long): The card set of all the trump cards from the hand that are higher than the highest trump card in the trick
+     * Gives the index of the card currently winning the trick
+     * @param pkTrick (int): the packed representation of the trick, not empty
+     * @return (int): the index of the winning card
      */
-    private static long findTrumpAbove(int pkTrick, long pkHand, Color trump) {
+    private static int winningIndex(int pkTrick) {
+        int trump = Bits32.extract(pkTrick, BITS_START_TRUMP, BITS_FOR_TRUMP);
+        int index =0;
+        int bestCard = card(pkTrick,0);
+        int size = size(pkTrick);
+        for (int i=1; i< size; ++i) {
+            if (PackedCard.isBetter(trump,card(pkTrick,i) , bestCard)) {
+                bestCard = card(pkTrick,i);
+                index =i;
+            }
+        }
+        return index;
+    }
 
-        int size =size(pkTrick);
-        int bestCard= PackedCard.INVALID;
+    /**
+     * Creates the table of the set of the cards of each color
+     * @return (long[]): the sets, indexed by the ordinal of the colors
+     */
+    private static long[] colorSets() {
+        long[] sets = new long[Color.COUNT];
+        for (Color c: Color.ALL) {
+            sets[c.ordinal()] = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, c);
+        }
+        return sets;
+    }
 
-        for (int i=0; i<size; ++i) {
-            if ( PackedCard.color(card(pkTrick,i))==trump) {
-                if (bestCard == PackedCard.INVALID) { bestCard=card(pkTrick,i); }
-                else {
-                    if (PackedCard.isBetter(trump, card(pkTrick, i), bestCard)) {bestCard=card(pkTrick,i);}
-                }
+    /**
+     * Creates the table of the trumps going over each card: the trumps above it if it is a trump, all the trumps otherwise
+     * @return (long[][]): the sets, indexed by the ordinal of the trump and the packed card
+     */
+    private static long[][] trumpsAbove() {
+        long[][] sets = new long[Color.COUNT][1 << BITS_FOR_CARD];
+        for (Color trump: Color.ALL) {
+            for (int pkCard=0; pkCard < 1 << BITS_FOR_CARD; ++pkCard) {
+                boolean isTrump = PackedCard.isValid(pkCard) && PackedCard.color(pkCard) == trump;
+                sets[trump.ordinal()][pkCard] = isTrump ? PackedCardSet.trumpAbove(pkCard) : COLOR_SETS[trump.ordinal()];
             }
         }
+        return sets;
+    }
 
-        if (bestCard == PackedCard.INVALID) {
-            return PackedCardSet.subsetOfColor(pkHand, trump);
-        }
-        else {
-            return PackedCardSet.intersection(pkHand, PackedCardSet.trumpAbove(bestCard));
+    /**
+     * Creates the table of the set containing only the jack of trump when the base color is trump (a player having
+     * no other trump can then play any card), and of an impossible set of cards otherwise
+     * @return (long[][]): the sets, indexed by the ordinals of the trump and of the base color
+     */
+    private static long[][] loneJack() {
+        long[][] sets = new long[Color.COUNT][Color.COUNT];
+        for (Color trump: Color.ALL) {
+            for (Color base: Color.ALL) {
+                sets[trump.ordinal()][base.ordinal()] = base == trump
+                        ? PackedCardSet.singleton(PackedCard.pack(trump, Rank.JACK))
+                        : PackedCardSet.ALL_CARDS;
+            }
         }
+        return sets;
     }
 
 }
@@ -0,0 +1,232 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.bits.Bits32;
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * Class which contains methods to manipulate the extended packed representation of a trick: the 32 least
+ * significant bits are the packed trick (as in PackedTrick, the format sent to the remote players) and the
+ * 32 others are kept up to date card after card with the number of cards of the trick, the index of the
+ * winning card and the points of the cards.
+ * The size, the winning player, the points and the trumps above the best one are thus obtained without
+ * going through the cards of the trick
+ */
+public final class PackedTrickState {
+
+    //Constants of the structure of the extended representation (after the bits of the packed trick)
+    public static final int BITS_FOR_SIZE = 3, BITS_START_SIZE = Integer.SIZE;
+    public static final int BITS_FOR_WINNER = 2, BITS_START_WINNER = BITS_START_SIZE+BITS_FOR_SIZE;
+    public static final int BITS_FOR_POINTS = 6, BITS_START_POINTS = BITS_START_WINNER+BITS_FOR_WINNER;
+
+    private static final long TRICK_MASK = (1L << Integer.SIZE)-1;
+    private static final int SIZE_MASK = (1 << BITS_FOR_SIZE)-1, WINNER_MASK = (1 << BITS_FOR_WINNER)-1, POINTS_MASK = (1 << BITS_FOR_POINTS)-1;
+    private static final int CARD_MASK = (1 << PackedTrick.BITS_FOR_CARD)-1;
+    private static final int BITS_FOR_RANK = 4;
+
+    //Represent the invalid trick (end of the turn)
+    public static final long INVALID = PackedTrick.INVALID & TRICK_MASK;
+
+    /**
+     * Constructor of PackedTrickState
+     */
+    private PackedTrickState() {}
+
+    /**
+     * Gives the extended representation of the given packed trick
+     * @param pkTrick (int): the packed trick
+     * @return (long): the extended representation of the trick
+     */
+    public static long ofTrick(int pkTrick) {
+        if (pkTrick == PackedTrick.INVALID) {
+            return INVALID;
+        }
+        int size = PackedTrick.size(pkTrick);
+        long state = (pkTrick | Bits32.mask(0, PackedTrick.BITS_FOR_CARD*PackedTrick.MAX_CARD_PER_TRICK)) & TRICK_MASK;
+        for (int i=0; i<size; ++i) {
+            state = withAddedCard(state, PackedTrick.card(pkTrick, i));
+        }
+        return state;
+    }
+
+    /**
+     * Checks if the extended representation of a trick is valid: its packed trick must be valid and the other
+     * bits must correspond to it
+     * @param state (long): the extended representation of the trick
+     * @return (boolean): true if it is valid, false otherwise
+     */
+    public static boolean isValid(long state) {
+        int pkTrick = trick(state);
+        return PackedTrick.isValid(pkTrick) && ofTrick(pkTrick) == state;
+    }
+
+    /**
+     * Gives the packed trick of the given extended representation
+     * @param state (long): the extended representation of the trick
+     * @return (int): the packed trick
+     */
+    public static int trick(long state) {
+        return (int)state;
+    }
+
+    /**
+     * Returns an empty trick with the given trump and first player
+     * @param trump (Color): the trump of the round
+     * @param firstPlayer (PlayerId): the player to start
+     * @return (long): the extended representation of the trick
+     */
+    public static long firstEmpty(Color trump, PlayerId firstPlayer) {
+        return PackedTrick.firstEmpty(trump, firstPlayer) & TRICK_MASK;
+    }
+
+    /**
+     * Returns the next empty trick, or INVALID if the given trick is the last one of the turn
+     * @param state (long): the extended representation of the (full) trick
+     * @return (long): the extended representation of the next trick
+     */
+    public static long nextEmpty(long state) {
+        int pkTrick = trick(state);
+        if (PackedTrick.isLast(pkTrick)) {
+            return INVALID;
+        }
+        int nextTrick = Bits32.pack(PackedCard.INVALID, PackedTrick.BITS_FOR_CARD, PackedCard.INVALID, PackedTrick.BITS_FOR_CARD,
+                PackedCard.INVALID, PackedTrick.BITS_FOR_CARD, PackedCard.INVALID, PackedTrick.BITS_FOR_CARD,
+                PackedTrick.index(pkTrick)+1, PackedTrick.BITS_FOR_INDEX, winningPlayer(state).ordinal(), PackedTrick.BITS_FOR_PLAYER,
+                PackedTrick.trump(pkTrick).ordinal(), PackedTrick.BITS_FOR_TRUMP);
+        return nextTrick & TRICK_MASK;
+    }
+
+    /**
+     * Adds the given card to the trick (which must not be full)
+     * @param state (long): the extended representation of the trick
+     * @param pkCard (int): the packed card to add
+     * @return (long): the extended representation of the updated trick
+     */
+    public static long withAddedCard(long state, int pkCard) {
+        int size = size(state);
+        int trump = trick(state) >>> PackedTrick.BITS_START_TRUMP;
+        int winner = winningIndex(state);
+        if (size > 0 && PackedCard.isBetter(trump, pkCard, card(state, winner))) {
+            winner = size;
+        }
+        int points = (int)(state >>> BITS_START_POINTS) & POINTS_MASK;
+        points += PackedCard.points(trump, pkCard);
+
+        int shift = PackedTrick.BITS_FOR_CARD*size;
+        long pkTrick = (state & TRICK_MASK & ~((long)CARD_MASK << shift)) | ((long)pkCard << shift);
+        return pkTrick | (long)(size+1) << BITS_START_SIZE | (long)winner << BITS_START_WINNER | (long)points << BITS_START_POINTS;
+    }
+
+    /**
+     * Returns the number of cards of the trick
+     * @param state (long): the extended representation of the trick
+     * @return (int): the number of cards of the trick
+     */
+    public static int size(long state) {
+        return (int)(state >>> BITS_START_SIZE) & SIZE_MASK;
+    }
+
+    /**
+     * Checks if the trick has no card
+     * @param state (long): the extended representation of the trick
+     * @return (boolean): true if the trick is empty, false otherwise
+     */
+    public static boolean isEmpty(long state) {
+        return size(state) == 0;
+    }
+
+    /**
+     * Checks if the trick is full
+     * @param state (long): the extended representation of the trick
+     * @return (boolean): true if the trick is full, false otherwise
+     */
+    public static boolean isFull(long state) {
+        return size(state) == PackedTrick.MAX_CARD_PER_TRICK;
+    }
+
+    /**
+     * Returns the card of the given index in the trick
+     * @param state (long): the extended representation of the trick
+     * @param index (int): the index of the card
+     * @return (int): the packed card
+     */
+    public static int card(long state, int index) {
+        return (int)(state >>> (PackedTrick.BITS_FOR_CARD*index)) & CARD_MASK;
+    }
+
+    /**
+     * Returns the card currently winning the trick (which must not be empty)
+     * @param state (long): the extended representation of the trick
+     * @return (int): the packed winning card
+     */
+    public static int winningCard(long state) {
+        return card(state, winningIndex(state));
+    }
+
+    /**
+     * Returns the player currently winning the trick (which must not be empty)
+     * @param state (long): the extended representation of the trick
+     * @return (PlayerId): the player winning the trick
+     */
+    public static PlayerId winningPlayer(long state) {
+        return PackedTrick.player(trick(state), winningIndex(state));
+    }
+
+    /**
+     * Gives the value of the trick, with the additional points if it is the last trick of the turn
+     * @param state (long): the extended representation of the trick
+     * @return (int): the value of the trick
+     */
+    public static int points(long state) {
+        int points = (int)(state >>> BITS_START_POINTS) & POINTS_MASK;
+        return PackedTrick.isLast(trick(state)) ? points+Jass.LAST_TRICK_ADDITIONAL_POINTS : points;
+    }
+
+    /**
+     * Returns the cards of the hand that can be played in the trick (same rules as PackedTrick.playableCards)
+     * @param state (long): the extended representation of the trick
+     * @param pkHand (long): the packed hand
+     * @return (long): the packed set of the playable cards
+     */
+    public static long playableCards(long state, long pkHand) {
+        if (isEmpty(state)) {
+            return pkHand;
+        }
+        int pkTrick = trick(state);
+        return PackedTrick.playableCards(pkTrick >>> PackedTrick.BITS_START_TRUMP, PackedTrick.card(pkTrick, 0) >>> BITS_FOR_RANK,
+                winningCard(state), pkHand);
+    }
+
+    /**
+     * Returns the trumps of the hand that are higher than the best trump of the trick (all the trumps of the
+     * hand if the trick has no trump): as soon as a trump is played, the winning card is the best trump
+     * @param state (long): the extended representation of the trick (not empty)
+     * @param pkHand (long): the packed hand
+     * @return (long): the packed set of the trumps above the best one of the trick
+     */
+    public static long trumpAbove(long state, long pkHand) {
+        Color trump = PackedTrick.trump(trick(state));
+        int bestCard = winningCard(state);
+        if (bestCard >>> BITS_FOR_RANK == trump.ordinal()) {
+            return PackedCardSet.intersection(pkHand, PackedCardSet.trumpAbove(bestCard));
+        }
+        return PackedCardSet.subsetOfColor(pkHand, trump);
+    }
+
+    /**
+     * Returns a representation of the trick as a string (the one of its packed trick)
+     * @param state (long): the extended representation of the trick
+     * @return (String): the representation of the trick
+     */
+    public static String toString(long state) {
+        return PackedTrick.toString(trick(state));
+    }
+
+    /**
+     * Gives the index in the trick of the winning card
+     * @param state (long): the extended representation of the trick
+     * @return (int): the index of the winning card
+     */
+    private static int winningIndex(long state) {
+        return (int)(state >>> BITS_START_WINNER) & WINNER_MASK;
+    }
+}
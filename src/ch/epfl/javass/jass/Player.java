@@ -17,6 +17,18 @@ public interface Player {
      */
     public abstract Card cardToPlay(TurnState state, CardSet hand);
 
+    /**
+     * Returns the card that the player wishes to play, knowing that it should be chosen before the given deadline.
+     * By default the deadline is ignored, the players able to use the time they are given override this method
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of cards of the player
+     * @param deadline (long): the time (as given by System.nanoTime()) before which the card should be chosen
+     * @return (Card): the card that the player wishes to play
+     */
+    public default Card cardToPlay(TurnState state, CardSet hand, long deadline) {
+        return cardToPlay(state, hand);
+    }
+
     /**
      * Method to inform the player of his Player Id along with all the Ids of every other players in the game. 
      * Called only once at each beginning of a game.
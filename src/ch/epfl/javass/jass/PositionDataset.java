@@ -0,0 +1,276 @@
+package ch.epfl.javass.jass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.epfl.javass.Preconditions;
+
+/**
+ * Class which represents a dataset of positions searched by MctsPlayers, written in a memory-mapped file to train
+ * evaluations offline (see SelfPlay): one record of RECORD_SIZE bytes (big-endian) per decision.
+ *   packed score (8 bytes), packed unplayed cards (8 bytes), hand of the player (8 bytes), packed trick (4 bytes),
+ *   player (1 byte), packed card played (1 byte), VALID (1 byte), unused (1 byte), then the root visit distribution
+ *   of the search: the number of visits of each card (4 bytes each) in the order of CardSet.ALL_CARDS
+ * The first record is the header (MAGIC, then VERSION and RECORD_SIZE as 4 bytes each).
+ * Each writer (one per thread, see writer) claims segments of SEGMENT_RECORDS records at the end of the file and
+ * fills them without any synchronization, only the segment being filled being mapped. The records are thus grouped
+ * by writer, and the end of the last segment of each writer stays empty (its VALID byte being 0)
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class PositionDataset implements AutoCloseable {
+
+    /** The size of a record, in bytes, and the number of records of a segment claimed by a writer **/
+    public static final int RECORD_SIZE = 176, SEGMENT_RECORDS = 4096;
+
+    /** The identification of the file, and the version of the format **/
+    public static final long MAGIC = 0x4A41535344415431L; //"JASSDAT1"
+    public static final int VERSION = 1;
+
+    /** The number of cards of the visit distribution **/
+    public static final int CARD_COUNT = 36;
+
+    //The offsets of the components of a record
+    private final static int SCORE = 0, UNPLAYED = 8, HAND = 16, TRICK = 24, PLAYER = 28, CARD = 29, VALID = 30, VISITS = 32;
+    private final static byte IS_VALID = 1;
+
+    private final FileChannel channel;
+    private final AtomicLong segments = new AtomicLong();
+    private final AtomicLong records = new AtomicLong();
+
+    /**
+     * Constructor of PositionDataset, which creates the file (replacing it if it exists)
+     * @param path (Path): the file of the dataset
+     * @throws IOException if the file can not be created
+     */
+    public PositionDataset(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+        header.putLong(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).position(RECORD_SIZE).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Creates a writer of records, to be used by a single thread
+     * @return (Writer): the writer
+     */
+    public Writer writer() {
+        return new Writer();
+    }
+
+    /**
+     * Gives the number of records written by all the writers
+     * @return (long): the number of records
+     */
+    public long records() {
+        return records.get();
+    }
+
+    /**
+     * Closes the file (the writers must not be used anymore)
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Maps a new segment at the end of the file
+     * @return (MappedByteBuffer): the segment
+     * @throws UncheckedIOException if the file can not be enlarged
+     */
+    private MappedByteBuffer claimSegment() {
+        long segment = segments.getAndIncrement();
+        try {
+            return channel.map(MapMode.READ_WRITE, RECORD_SIZE+segment*SEGMENT_RECORDS*RECORD_SIZE, (long)SEGMENT_RECORDS*RECORD_SIZE);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Represent a writer of records of the dataset, used by a single thread: the records are written directly in its
+     * mapped segment, so that a record costs no allocation and no system call
+     */
+    public final class Writer {
+
+        private MappedByteBuffer segment;
+        private int written = SEGMENT_RECORDS;
+
+        /**
+         * Private constructor of Writer
+         */
+        private Writer() {}
+
+        /**
+         * Writes the record of a decision
+         * @param state (TurnState): the state of the turn before the card
+         * @param hand (CardSet): the hand of the player
+         * @param card (Card): the card played
+         * @param visits (int[]): the root visit distribution of the search (see MctsPlayer.lastRootVisits)
+         * @throws IllegalArgumentException if the distribution is not of size 36
+         * @throws UncheckedIOException if the file can not be enlarged
+         */
+        public void write(TurnState state, CardSet hand, Card card, int[] visits) {
+            Preconditions.checkArgument(visits.length == CARD_COUNT);
+            if (written == SEGMENT_RECORDS) {
+                segment = claimSegment();
+                written = 0;
+            }
+            int offset = written*RECORD_SIZE;
+            segment.putLong(offset+SCORE, state.packedScore());
+            segment.putLong(offset+UNPLAYED, state.packedUnplayedCards());
+            segment.putLong(offset+HAND, hand.packed());
+            segment.putInt(offset+TRICK, state.packedTrick());
+            segment.put(offset+PLAYER, (byte)state.nextPlayer().ordinal());
+            segment.put(offset+CARD, (byte)card.packed());
+            for (int i=0; i<CARD_COUNT; ++i) {
+                segment.putInt(offset+VISITS+Integer.BYTES*i, visits[i]);
+            }
+            segment.put(offset+VALID, IS_VALID);
+            ++written;
+            records.incrementAndGet();
+        }
+    }
+
+    /**
+     * Represent the reading of a dataset: the file is memory-mapped and any record is read directly from its index
+     */
+    public static final class Reader implements AutoCloseable {
+
+        //The number of records of a mapped segment of the file (a mapping being limited to 2 GB)
+        private final static int MAPPED_RECORDS = 1 << 22;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer[] mapped;
+        private final long slots;
+
+        /**
+         * Constructor of Reader, which maps the file
+         * @param path (Path): the file of the dataset
+         * @throws IOException if the file can not be read, or if it is not a dataset of positions
+         */
+        public Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < RECORD_SIZE || header.getLong() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+                    throw new IOException("Not a dataset of positions: "+path);
+                }
+                slots = channel.size()/RECORD_SIZE-1;
+                mapped = new MappedByteBuffer[(int)((slots+MAPPED_RECORDS-1)/MAPPED_RECORDS)];
+                for (int i=0; i<mapped.length; ++i) {
+                    long first = (long)i*MAPPED_RECORDS;
+                    long size = Math.min(MAPPED_RECORDS, slots-first)*RECORD_SIZE;
+                    mapped[i] = channel.map(MapMode.READ_ONLY, (first+1)*RECORD_SIZE, size);
+                }
+            }
+            catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Gives the number of places of records of the file, the empty ones at the end of the segments included
+         * @return (long): the number of places
+         */
+        public long slots() {
+            return slots;
+        }
+
+        /**
+         * Says if a place contains a record (the end of the segments being empty)
+         * @param index (long): the index of the place
+         * @return (boolean): true if it contains a record
+         */
+        public boolean isRecord(long index) {
+            return segment(index).get(offset(index)+VALID) == IS_VALID;
+        }
+
+        /**
+         * Gives the state of the turn of a record
+         * @param index (long): the index of the record
+         * @return (TurnState): the state of the turn before the card
+         */
+        public TurnState turnState(long index) {
+            ByteBuffer s = segment(index);
+            int offset = offset(index);
+            return TurnState.ofPackedComponents(s.getLong(offset+SCORE), s.getLong(offset+UNPLAYED), s.getInt(offset+TRICK));
+        }
+
+        /**
+         * Gives the hand of the player of a record
+         * @param index (long): the index of the record
+         * @return (CardSet): the hand
+         */
+        public CardSet hand(long index) {
+            return CardSet.ofPacked(segment(index).getLong(offset(index)+HAND));
+        }
+
+        /**
+         * Gives the card played of a record
+         * @param index (long): the index of the record
+         * @return (Card): the card
+         */
+        public Card card(long index) {
+            return Card.ofPacked(segment(index).get(offset(index)+CARD));
+        }
+
+        /**
+         * Copies the root visit distribution of a record in the given array
+         * @param index (long): the index of the record
+         * @param visits (int[]): the array, indexed by the index of the cards in CardSet.ALL_CARDS (of size 36)
+         */
+        public void visits(long index, int[] visits) {
+            ByteBuffer s = segment(index);
+            int offset = offset(index)+VISITS;
+            for (int i=0; i<CARD_COUNT; ++i) {
+                visits[i] = s.getInt(offset+Integer.BYTES*i);
+            }
+        }
+
+        /**
+         * Closes the file (the mappings stay valid until they are collected)
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        /**
+         * Gives the mapped segment of the file containing a record
+         * @param index (long): the index of the record
+         * @return (ByteBuffer): the segment
+         * @throws IndexOutOfBoundsException if there is no place of this index
+         */
+        private ByteBuffer segment(long index) {
+            if (index < 0 || index >= slots) {
+                throw new IndexOutOfBoundsException();
+            }
+            return mapped[(int)(index/MAPPED_RECORDS)];
+        }
+
+        /**
+         * Gives the offset of a record in its mapped segment
+         * @param index (long): the index of the record
+         * @return (int): the offset
+         */
+        private static int offset(long index) {
+            return (int)(index%MAPPED_RECORDS)*RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ch.epfl.javass.jass;
+
+import java.util.Arrays;
+
+import ch.epfl.javass.Preconditions;
+
+/**
+ * Class that represent the transposition table of a PackedMctsTree: the statistics of the states of the turn reached
+ * by several paths of the tree (for instance the same cards played in another order, by other players, in a trick
+ * won by the same team), so that the nodes of such a state share the turns simulated from all of them.
+ * The entries are stored in flat arrays and found by open addressing from a hash of their key (the packed score,
+ * the packed unplayed cards, the packed trick and the hand of the player), looking at PROBES consecutive entries.
+ * The size is fixed: when these entries are all used, the one of the oldest search (then the least visited) is replaced
+ */
+public final class TranspositionTable {
+
+    /** The value of the entry of a node without entry **/
+    public static final int NO_ENTRY = -1;
+
+    private final static int PROBES = 4;
+
+    /** The minimal number of entries of a table **/
+    public static final int MIN_ENTRIES = PROBES;
+
+    private final int mask;
+
+    //The key of each entry, the trick of an unused entry being PackedTrick.INVALID (never the trick of an entry)
+    private final long[] pkScore;
+    private final long[] pkUnplayed;
+    private final int[] pkTrick;
+    private final long[] pkHand;
+
+    //The statistics of each entry: the finished turns and the points of each team, and the search which used it last
+    private final int[] visits;
+    private final long[] points1;
+    private final long[] points2;
+    private final int[] search;
+    private int currentSearch;
+
+    /**
+     * Constructor of TranspositionTable
+     * @param entries (int): the number of entries, a power of two
+     * @throws IllegalArgumentException: if the number of entries is not a power of two of at least MIN_ENTRIES
+     */
+    public TranspositionTable(int entries) {
+        Preconditions.checkArgument(entries >= MIN_ENTRIES && Integer.bitCount(entries) == 1);
+        mask = entries-1;
+        pkScore = new long[entries];
+        pkUnplayed = new long[entries];
+        pkTrick = new int[entries];
+        pkHand = new long[entries];
+        visits = new int[entries];
+        points1 = new long[entries];
+        points2 = new long[entries];
+        search = new int[entries];
+        Arrays.fill(pkTrick, PackedTrick.INVALID);
+    }
+
+    /**
+     * Starts a new search: the entries used by the previous ones become the first to be replaced
+     */
+    void newSearch() {
+        ++currentSearch;
+    }
+
+    /**
+     * Gives the entry of the given state, creating it (and replacing another entry if needed) if it does not exist
+     * @param score (long): the packed score
+     * @param unplayed (long): the packed set of unplayed cards
+     * @param trick (int): the packed trick (not PackedTrick.INVALID)
+     * @param hand (long): the packed hand of the player
+     * @return (int): the entry
+     */
+    int entry(long score, long unplayed, int trick, long hand) {
+        int first = hash(score, unplayed, trick, hand);
+        int replaced = first;
+        for (int i=0; i<PROBES; ++i) {
+            int e = (first+i) & mask;
+            if (holds(e, score, unplayed, trick, hand)) {
+                search[e] = currentSearch;
+                return e;
+            }
+            if (pkTrick[e] == PackedTrick.INVALID) {
+                replaced = e;
+                break;
+            }
+            if (search[e] < search[replaced] || (search[e] == search[replaced] && visits[e] < visits[replaced])) {
+                replaced = e;
+            }
+        }
+
+        pkScore[replaced] = score;
+        pkUnplayed[replaced] = unplayed;
+        pkTrick[replaced] = trick;
+        pkHand[replaced] = hand;
+        visits[replaced] = 0;
+        points1[replaced] = 0;
+        points2[replaced] = 0;
+        search[replaced] = currentSearch;
+        return replaced;
+    }
+
+    /**
+     * Says if the given entry is still the one of the given state (it may have been replaced)
+     * @param e (int): the entry
+     * @param score (long): the packed score
+     * @param unplayed (long): the packed set of unplayed cards
+     * @param trick (int): the packed trick
+     * @param hand (long): the packed hand of the player
+     * @return (boolean): true if the entry is the one of this state
+     */
+    boolean holds(int e, long score, long unplayed, int trick, long hand) {
+        return pkTrick[e] == trick && pkUnplayed[e] == unplayed && pkScore[e] == score && pkHand[e] == hand;
+    }
+
+    /**
+     * Adds a finished turn to the statistics of the given entry
+     * @param e (int): the entry
+     * @param turnScore (long): the packed score at the end of the turn
+     */
+    void addTurn(int e, long turnScore) {
+        visits[e] += 1;
+        points1[e] += PackedScore.turnPoints(turnScore, TeamId.TEAM_1);
+        points2[e] += PackedScore.turnPoints(turnScore, TeamId.TEAM_2);
+    }
+
+    /**
+     * Gives the number of finished turns of the given entry
+     * @param e (int): the entry
+     * @return (int): the number of finished turns
+     */
+    int visits(int e) {
+        return visits[e];
+    }
+
+    /**
+     * Gives the points of the given team in the finished turns of the given entry
+     * @param e (int): the entry
+     * @param team (TeamId): the team
+     * @return (long): the points
+     */
+    long points(int e, TeamId team) {
+        return team == TeamId.TEAM_1 ? points1[e] : points2[e];
+    }
+
+    /**
+     * Gives the first entry at which the given state is searched
+     * @param score (long): the packed score
+     * @param unplayed (long): the packed set of unplayed cards
+     * @param trick (int): the packed trick
+     * @param hand (long): the packed hand of the player
+     * @return (int): the entry
+     */
+    private int hash(long score, long unplayed, int trick, long hand) {
+        long h = score*0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 29) ^ unplayed)*0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 32) ^ hand)*0x94D049BB133111EBL;
+        h = (h ^ (h >>> 29) ^ trick)*0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+}
@@ -9,6 +9,13 @@ public final class Trick {
 
     public final static Trick INVALID = new Trick(PackedTrick.INVALID);
 
+    //The tricks already created, each one at a place given by a hash of its packed representation: the trick is
+    //taken from there when it is asked again (a new trick replaces the one at its place). The tricks being
+    //immutable, they are shared between the threads without synchronization
+    private final static int CACHE_BITS = 12;
+    private final static int HASH_MULTIPLIER = 0x9E3779B9;
+    private final static Trick[] CACHE = new Trick[1 << CACHE_BITS];
+
 
     /**
      * Constructor of Trick
@@ -25,7 +32,7 @@ public final class Trick {
      * @return (Trick): the empty trick
      */
     public static Trick firstEmpty(Color trump, PlayerId firstPlayer) {
-        return new Trick(PackedTrick.firstEmpty(trump, firstPlayer));
+        return canonical(PackedTrick.firstEmpty(trump, firstPlayer));
     }
 
     /**
@@ -35,8 +42,37 @@ public final class Trick {
      * @return (Trick): the trick corresponding to the given PackedTrick
      */
     public static Trick ofPacked(int packed) {
+        Trick cached = CACHE[cacheIndex(packed)];
+        if (cached != null && cached.pkTrick == packed) {
+            return cached;
+        }
         Preconditions.checkArgument(PackedTrick.isValid(packed));
-        return new Trick(packed);
+        return canonical(packed);
+    }
+
+    /**
+     * Gives the trick of the given packed representation, taken from the cache if it is there, and puts it
+     * in the cache otherwise
+     * @param pkTrick (int): the packed representation of the trick (valid)
+     * @return (Trick): the trick
+     */
+    private static Trick canonical(int pkTrick) {
+        int index = cacheIndex(pkTrick);
+        Trick trick = CACHE[index];
+        if (trick == null || trick.pkTrick != pkTrick) {
+            trick = new Trick(pkTrick);
+            CACHE[index] = trick;
+        }
+        return trick;
+    }
+
+    /**
+     * Gives the place in the cache of the trick of the given packed representation
+     * @param pkTrick (int): the packed representation of the trick
+     * @return (int): the index in the cache
+     */
+    private static int cacheIndex(int pkTrick) {
+        return (pkTrick * HASH_MULTIPLIER) >>> (Integer.SIZE-CACHE_BITS);
     }
 
     /**
@@ -54,7 +90,7 @@ public final class Trick {
      */
     public Trick nextEmpty() {
         if(!this.isFull())  {throw new IllegalStateException();}
-        return new Trick(PackedTrick.nextEmpty(pkTrick));
+        return canonical(PackedTrick.nextEmpty(pkTrick));
     }
 
     /**
@@ -135,7 +171,7 @@ public final class Trick {
      */
     public Trick withAddedCard(Card c) {
         if(this.isFull())  {throw new IllegalStateException();}
-        return new Trick(PackedTrick.withAddedCard(pkTrick, c.packed()));
+        return canonical(PackedTrick.withAddedCard(pkTrick, c.packed()));
     }
 
     /**
@@ -7,16 +7,23 @@ public final class TurnState {
     
     private final long currentScore;
     private final long unplayedCards;
-    private final int currentTrick;
+    //The extended representation of the trick (see PackedTrickState)
+    private final long currentTrick;
+
+    //The objects given by score(), unplayedCards() and trick(), created at the first call only. Two threads may
+    //both create one, but the objects being immutable and equal, any of them can be kept
+    private Score score;
+    private CardSet unplayedCardSet;
+    private Trick trick;
     
     
     /**
      * private constructor of TurnState
      * @param currentScore (long): the packed representation of the score of the current game
      * @param cardsNotYetPlayed (long):the packed representation of the set of unplayed cards in the turn
-     * @param currentTrick (int): the current trick of the turn
+     * @param currentTrick (long): the extended representation of the current trick of the turn
      */
-    private TurnState(long currentScore,long cardsNotYetPlayed, int currentTrick ) {
+    private TurnState(long currentScore,long cardsNotYetPlayed, long currentTrick ) {
         this.currentScore=currentScore;
         this.unplayedCards= cardsNotYetPlayed;
         this.currentTrick=currentTrick;
@@ -30,7 +37,7 @@ public final class TurnState {
      * @return (TurnState): the initial state of a turn
      */
     public static TurnState initial(Color trump, Score score, PlayerId firstPlayer) {
-        int initialTrick = PackedTrick.firstEmpty(trump, firstPlayer);
+        long initialTrick = PackedTrickState.firstEmpty(trump, firstPlayer);
         return new TurnState(score.packed(), PackedCardSet.ALL_CARDS, initialTrick);
     }
     
@@ -48,7 +55,7 @@ public final class TurnState {
         Preconditions.checkArgument(PackedCardSet.isValid(pkUnplayedCards));
         Preconditions.checkArgument(PackedTrick.isValid(pkTrick));
         
-        return new TurnState(pkScore,pkUnplayedCards,pkTrick);
+        return new TurnState(pkScore,pkUnplayedCards,PackedTrickState.ofTrick(pkTrick));
     }
     
     /**
@@ -72,7 +79,7 @@ public final class TurnState {
      * @return (int): the current trick of the turn
      */
     public int packedTrick() {
-        return currentTrick;
+        return PackedTrickState.trick(currentTrick);
     }
 
     /**
@@ -80,7 +87,12 @@ public final class TurnState {
      * @return (Score): the score of the turn
      */
     public Score score() {
-        return Score.ofPacked(currentScore);
+        Score s = score;
+        if (s == null) {
+            s = Score.ofPacked(currentScore);
+            score = s;
+        }
+        return s;
     }
     
     /**
@@ -88,7 +100,12 @@ public final class TurnState {
      * @return (CardSet): the set of cards not yet played in the turn
      */
     public CardSet unplayedCards() {
-        return CardSet.ofPacked(unplayedCards);
+        CardSet s = unplayedCardSet;
+        if (s == null) {
+            s = CardSet.ofPacked(unplayedCards);
+            unplayedCardSet = s;
+        }
+        return s;
     }
     
     /**
@@ -96,7 +113,12 @@ public final class TurnState {
      * @return (Trick): the current trick of the turn
      */
     public Trick trick() {
-        return Trick.ofPacked(currentTrick);
+        Trick t = trick;
+        if (t == null) {
+            t = Trick.ofPacked(packedTrick());
+            trick = t;
+        }
+        return t;
     }
     
     /**
@@ -104,7 +126,7 @@ public final class TurnState {
      * @return (boolean) : true if it is the last trick of the turn and the trick is full, false otherwise
      */
     public boolean isTerminal() {
-        return currentTrick==PackedTrick.INVALID ;
+        return currentTrick==PackedTrickState.INVALID ;
     }
     
     /**
@@ -113,8 +135,8 @@ public final class TurnState {
      * @return (PlayerId): the next player that has to play
      */
    public PlayerId nextPlayer() {
-       if(PackedTrick.isFull(currentTrick)) {throw new IllegalStateException();}
-       return PackedTrick.player(currentTrick,PackedTrick.size(currentTrick) );
+       if(PackedTrickState.isFull(currentTrick)) {throw new IllegalStateException();}
+       return PackedTrick.player(packedTrick(),PackedTrickState.size(currentTrick) );
    }
    
    
@@ -126,9 +148,9 @@ public final class TurnState {
       * @return (TurnState): the updated state of the turn
       */
      public TurnState withNewCardPlayed(Card card) {
-         if(PackedTrick.isFull(currentTrick)) {throw new IllegalStateException();}
+         if(PackedTrickState.isFull(currentTrick)) {throw new IllegalStateException();}
          
-         int newCurrentTrick = PackedTrick.withAddedCard(currentTrick, card.packed());
+         long newCurrentTrick = PackedTrickState.withAddedCard(currentTrick, card.packed());
          long newUnplayedCards = PackedCardSet.remove(unplayedCards, card.packed());
          return new TurnState(currentScore, newUnplayedCards, newCurrentTrick);
      }
@@ -139,10 +161,10 @@ public final class TurnState {
       * @return (TurnState): the turn state after that the trick has been collected
       */
      public TurnState withTrickCollected() {
-         if(!PackedTrick.isFull(currentTrick)) {throw new IllegalStateException();}
+         if(!PackedTrickState.isFull(currentTrick)) {throw new IllegalStateException();}
          
-         long score = PackedScore.withAdditionalTrick(currentScore, PackedTrick.winningPlayer(currentTrick).team(), PackedTrick.points(currentTrick));
-         return new TurnState(score, unplayedCards,PackedTrick.nextEmpty(currentTrick));
+         long score = PackedScore.withAdditionalTrick(currentScore, PackedTrickState.winningPlayer(currentTrick).team(), PackedTrickState.points(currentTrick));
+         return new TurnState(score, unplayedCards,PackedTrickState.nextEmpty(currentTrick));
      }
 
      /**
@@ -152,11 +174,11 @@ public final class TurnState {
       * @return (TurnState): the updated state of the turn
       */
      public TurnState withNewCardPlayedAndTrickCollected(Card card) {
-         if (this.trick().isFull()) {throw new IllegalStateException();}
+         if (PackedTrickState.isFull(currentTrick)) {throw new IllegalStateException();}
          
          TurnState updatedState = this.withNewCardPlayed(card);
          
-         if (updatedState.trick().isFull()) {
+         if (PackedTrickState.isFull(updatedState.currentTrick)) {
          updatedState = updatedState.withTrickCollected();
          }
          return updatedState;
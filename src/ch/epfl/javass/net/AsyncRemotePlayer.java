@@ -0,0 +1,412 @@
+package ch.epfl.javass.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import ch.epfl.javass.jass.Card;
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.CardSet;
+import ch.epfl.javass.jass.Player;
+import ch.epfl.javass.jass.PlayerId;
+import ch.epfl.javass.jass.Score;
+import ch.epfl.javass.jass.TeamId;
+import ch.epfl.javass.jass.Trick;
+import ch.epfl.javass.jass.TurnState;
+
+/**
+ * Class which represents the client for a remote player whose connection is driven by a RemotePlayerSelector (instead
+ * of a thread blocked on the socket as RemotePlayerClient): the messages are encoded in a direct buffer, reused, which
+ * the thread of input/output writes when the channel is ready, and a card is asked with requestCard, which gives a
+ * future completed when the card is received.
+ * The protocol is the one of RemotePlayerClient: the binary protocol if the server accepts it, the text protocol otherwise
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class AsyncRemotePlayer implements Player, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final char END_OF_LINE = '\n';
+
+    private final RemotePlayerSelector selector;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    //The messages waiting to be written (in writing mode) and the bytes received not processed yet (in writing mode)
+    private ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    //The cards asked and not received yet, in order
+    private final Queue<CompletableFuture<Card>> requests = new ArrayDeque<>();
+
+    //The messages given while the answer to the proposition of the binary protocol has not been received, and the
+    //characters of the line of text being read
+    private final List<JassMessage> beforeNegotiation = new ArrayList<>();
+    private final StringBuilder line = new StringBuilder();
+
+    private boolean negotiating;
+    private boolean binary;
+    private boolean flushScheduled;
+    private boolean closing;
+    private IOException failure;
+
+    /**
+     * Constructor of AsyncRemotePlayer (see RemotePlayerSelector.connect and register)
+     * @param selector (RemotePlayerSelector): the selector driving the channel
+     * @param channel (SocketChannel): the channel, not blocking and connected to the server of the distant player
+     * @param binary (boolean): true to propose the binary protocol to the server, false to use the text protocol
+     */
+    AsyncRemotePlayer(RemotePlayerSelector selector, SocketChannel channel, boolean binary) {
+        this.selector = selector;
+        this.channel = channel;
+        if (binary) {
+            encode(JassMessage.of(JassCommand.PROT, JassMessage.BINARY), false);
+            negotiating = true;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Asks the distant player the card it wants to play
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of the player
+     * @return (CompletableFuture<Card>): the card, completed by the thread of input/output when received (exceptionally
+     * if the connection fails)
+     */
+    public synchronized CompletableFuture<Card> requestCard(TurnState state, CardSet hand) {
+        CompletableFuture<Card> card = new CompletableFuture<>();
+        if (failure != null) {
+            card.completeExceptionally(failure);
+            return card;
+        }
+        requests.add(card);
+        send(JassMessage.of(JassCommand.CARD, state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), hand.packed()));
+        return card;
+    }
+
+    /**
+     * Tells if the messages are sent in the binary protocol (false while the answer of the server has not been received)
+     * @return (boolean): true if the binary protocol is used
+     */
+    public synchronized boolean isBinary() {
+        return binary && !negotiating;
+    }
+
+    /**
+     * Tells if the connection is still open, the thread of input/output having not seen it closed or failed
+     * (used by the game server before seating the player)
+     * @return (boolean): true if the player is still connected
+     */
+    public synchronized boolean isConnected() {
+        return failure == null && !closing;
+    }
+
+    /**
+     * Closes the connection once the messages waiting have been written
+     */
+    @Override
+    public synchronized void close() {
+        if (!closing) {
+            closing = true;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * override of the method cardToPlay of player: waits for the card asked with requestCard
+     */
+    @Override
+    public Card cardToPlay(TurnState state, CardSet hand) {
+        try {
+            return requestCard(state, hand).join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException)e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * override of the method setPlayers of player
+     */
+    @Override
+    public synchronized void setPlayers(PlayerId ownId, Map<PlayerId, String> playerNames, Map<PlayerId, Boolean> helpMap) {
+        String[] names = new String[PlayerId.COUNT];
+        boolean[] help = new boolean[PlayerId.COUNT];
+        for (PlayerId id: PlayerId.ALL) {
+            names[id.ordinal()] = playerNames.get(id);
+            help[id.ordinal()] = helpMap.get(id);
+        }
+        send(JassMessage.players(ownId, names, help));
+    }
+
+    /**
+     * override of the method updateHand of player
+     */
+    @Override
+    public synchronized void updateHand(CardSet newHand) {
+        send(JassMessage.of(JassCommand.HAND, newHand.packed()));
+    }
+
+    /**
+     * override of the method setTrump of player
+     */
+    @Override
+    public synchronized void setTrump(Color trump) {
+        send(JassMessage.of(JassCommand.TRMP, trump.ordinal()));
+    }
+
+    /**
+     * override of the method updateTrick of player
+     */
+    @Override
+    public synchronized void updateTrick(Trick newTrick) {
+        send(JassMessage.of(JassCommand.TRCK, newTrick.packed()));
+    }
+
+    /**
+     * override of the method updateScore of player
+     */
+    @Override
+    public synchronized void updateScore(Score score) {
+        send(JassMessage.of(JassCommand.SCOR, score.packed()));
+    }
+
+    /**
+     * override of the method setWinningTeam of player
+     */
+    @Override
+    public synchronized void setWinningTeam(TeamId winningTeam) {
+        send(JassMessage.of(JassCommand.WINR, winningTeam.ordinal()));
+    }
+
+    /**
+     * Override of the method setHelp of player
+     */
+    @Override
+    public synchronized void setHelp(TurnState state, CardSet hand, PlayerId id) {
+        send(JassMessage.of(JassCommand.HELP, id.ordinal(), state.packedScore(), state.packedUnplayedCards(),
+                state.packedTrick(), hand.packed()));
+    }
+
+    /**
+     * Override of the method resetHelp of player
+     */
+    @Override
+    public synchronized void resetHelp() {
+        send(JassMessage.of(JassCommand.RESH));
+    }
+
+    /**
+     * Registers the channel to the selector (called by the thread of input/output)
+     * @param s (Selector): the selector
+     */
+    synchronized void register(Selector s) {
+        try {
+            key = channel.register(s, SelectionKey.OP_READ, this);
+            updateInterest();
+        }
+        catch (ClosedChannelException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Writes the messages waiting, as much as the channel accepts them (called by the thread of input/output)
+     */
+    synchronized void flush() {
+        flushScheduled = false;
+        if (failure != null || key == null) {
+            return;
+        }
+        try {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (closing && out.position() == 0) {
+                closeChannel();
+            }
+            else {
+                updateInterest();
+            }
+        }
+        catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Reads the bytes received and completes the cards asked (called by the thread of input/output)
+     */
+    void read() {
+        List<CompletableFuture<Card>> completed = new ArrayList<>();
+        List<Card> cards = new ArrayList<>();
+        synchronized (this) {
+            try {
+                if (channel.read(in) < 0) {
+                    throw new EOFException();
+                }
+                in.flip();
+                while (in.hasRemaining()) {
+                    if (negotiating || !binary) {
+                        char c = (char)in.get();
+                        if (c != END_OF_LINE) {
+                            line.append(c);
+                            continue;
+                        }
+                        int value = StringSerializer.deserializeInt(line.toString());
+                        line.setLength(0);
+                        if (negotiating) {
+                            negotiated((value & JassMessage.BINARY) != 0);
+                            continue;
+                        }
+                        cards.add(Card.ofPacked(value));
+                    }
+                    else {
+                        cards.add(Card.ofPacked(in.get()));
+                    }
+                    if (requests.isEmpty()) {
+                        throw new IOException("Card received without request");
+                    }
+                    completed.add(requests.remove());
+                }
+                in.clear();
+            }
+            catch (IOException e) {
+                fail(e);
+            }
+            catch (IllegalArgumentException e) {
+                //An invalid card or text: the connection is stopped, not the thread of input/output
+                fail(new IOException(e));
+            }
+        }
+        //The futures are completed without the lock, the actions depending on them being executed by this thread
+        for (int i=0; i<completed.size(); ++i) {
+            completed.get(i).complete(cards.get(i));
+        }
+    }
+
+    /**
+     * Stops the player after an error of its connection: the connection is closed and the cards asked fail
+     * @param e (IOException): the error
+     */
+    synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+            closeChannel();
+        }
+        CompletableFuture<Card> card;
+        while ((card = requests.poll()) != null) {
+            card.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Sends the given message: encodes it and asks the thread of input/output to write it
+     * @param message (JassMessage): the message
+     * @throws UncheckedIOException if the connection failed
+     * @throws IllegalStateException if the player has been closed
+     */
+    private void send(JassMessage message) {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (closing) {
+            throw new IllegalStateException("Player closed");
+        }
+        if (negotiating) {
+            beforeNegotiation.add(message);
+            return;
+        }
+        encode(message, binary);
+        scheduleFlush();
+    }
+
+    /**
+     * Switches to the protocol chosen by the server and encodes the messages given before its answer
+     * @param accepted (boolean): true if the binary protocol has been accepted
+     */
+    private void negotiated(boolean accepted) {
+        negotiating = false;
+        binary = accepted;
+        for (JassMessage message: beforeNegotiation) {
+            encode(message, binary);
+        }
+        beforeNegotiation.clear();
+        flush();
+    }
+
+    /**
+     * Encodes the given message at the end of the buffer of the messages waiting, enlarging it if needed
+     * @param message (JassMessage): the message
+     * @param binary (boolean): true to encode it in the binary protocol, false in the text protocol
+     */
+    private void encode(JassMessage message, boolean binary) {
+        int start = out.position();
+        try {
+            if (binary) {
+                message.writeBinary(out);
+            }
+            else {
+                out.put(message.toText().getBytes(StandardCharsets.US_ASCII));
+                out.put((byte)END_OF_LINE);
+            }
+        }
+        catch (BufferOverflowException e) {
+            out.position(start);
+            ByteBuffer larger = ByteBuffer.allocateDirect(2*out.capacity());
+            out.flip();
+            larger.put(out);
+            out = larger;
+            encode(message, binary);
+        }
+    }
+
+    /**
+     * Asks the thread of input/output to write the messages waiting, if it has not been asked yet
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            selector.execute(this::flush);
+        }
+    }
+
+    /**
+     * Waits for the channel to accept bytes only if messages are waiting
+     */
+    private void updateInterest() {
+        if (key != null && key.isValid()) {
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Closes the channel
+     */
+    private void closeChannel() {
+        if (channel.isOpen()) {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {}
+            selector.closed();
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package ch.epfl.javass.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.DeadlinePlayer;
+import ch.epfl.javass.jass.JassGame;
+import ch.epfl.javass.jass.MctsPlayer;
+import ch.epfl.javass.jass.PacedPlayer;
+import ch.epfl.javass.jass.Player;
+import ch.epfl.javass.jass.PlayerId;
+
+/**
+ * Class which represents a server hosting many games at the same time: it accepts the connections of the distant
+ * players continuously (see RemotePlayerServer.runConnectedTo), seats them at tables in the order of their arrival
+ * and, as soon as a table has its distant players, completes it with simulated players and runs its game (the
+ * players which disconnected while the table was filling being replaced by the next ones).
+ * Each game runs on its own virtual thread when the virtual machine has them (Java 21 and later), the waits for the
+ * distant players then costing no platform thread, and otherwise on a bounded pool of platform threads (the tables
+ * which are complete then wait for a free thread).
+ * The connections are either blocking (RemotePlayerClient, with batching) or all driven by a single thread of
+ * input/output (AsyncRemotePlayer and RemotePlayerSelector), the threads of the games then never writing to the network.
+ * With a deadline per move (see enableMoveDeadline), a distant player too slow to play is replaced for this move by a
+ * fast simulated player, so that a table never waits for longer than the deadline.
+ * The number of tables and of seats is given at any time, to know what a server can host
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class GameServer implements AutoCloseable {
+
+    /**Default port of the game server (the one of RemotePlayerServer being used by the distant players) **/
+    public static final int DEFAULT_PORT = RemotePlayerServer.SERVER_PORT+1;
+
+    private final static String REMOTE_NAME = "Joueur ", SIMULATED_NAME = "MCTS ";
+    private final static int MILLISECONDS_PER_SECOND = 1000;
+
+    //The maximal time a notification to a distant player waits to be sent with the following ones, in seconds
+    private final static double LINGER_TIME = 0.05;
+
+    //The number of iterations of the simulated players playing for the distant players too slow
+    private final static int FALLBACK_ITERATIONS = 100;
+
+    private final ServerSocketChannel serverChannel;
+    private final RemotePlayerSelector selector;
+    private final int remoteSeats;
+    private final int iterations;
+    private final double pace;
+    private final Random rng;
+    private final ExecutorService tables;
+    private final boolean virtualThreads;
+    private volatile double moveDeadline;
+
+    //The distant players of the table being filled, only used by the thread accepting the connections
+    private final List<Player> waiting = new ArrayList<>();
+
+    private final AtomicInteger waitingSeats = new AtomicInteger();
+    private final AtomicInteger queuedTables = new AtomicInteger();
+    private final AtomicInteger activeTables = new AtomicInteger();
+    private final AtomicInteger activeSeats = new AtomicInteger();
+    private final AtomicInteger finishedTables = new AtomicInteger();
+    private final AtomicInteger failedTables = new AtomicInteger();
+    private final AtomicInteger moveTimeouts = new AtomicInteger();
+
+    /**
+     * Constructor of GameServer, which opens the port (the connections are accepted by run)
+     * @param port (int): the port on which the distant players connect
+     * @param remoteSeats (int): the number of distant players of each table (between 1 and 4), the first seats
+     * @param iterations (int): the number of iterations of the simulated players completing the tables
+     * @param pace (double): the minimal time taken by a simulated player to play and the pause after each trick,
+     * in seconds (0 to play as fast as possible)
+     * @param platformThreads (int): the number of platform threads running the games if there are no virtual threads
+     * @param seed (long): the seed of the random generator of the games
+     * @param nio (boolean): true to drive all the connections with a single thread of input/output, false to use
+     * blocking connections
+     * @throws IOException if the port can not be opened
+     */
+    public GameServer(int port, int remoteSeats, int iterations, double pace, int platformThreads, long seed, boolean nio) throws IOException {
+        Preconditions.checkArgument(1 <= remoteSeats && remoteSeats <= PlayerId.COUNT);
+        Preconditions.checkArgument(iterations >= 1 && pace >= 0 && platformThreads >= 1);
+        this.remoteSeats = remoteSeats;
+        this.iterations = iterations;
+        this.pace = pace;
+        this.rng = new Random(seed);
+
+        ExecutorService virtual = virtualThreadExecutor();
+        virtualThreads = virtual != null;
+        tables = virtualThreads ? virtual : Executors.newFixedThreadPool(platformThreads);
+        selector = nio ? new RemotePlayerSelector() : null;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+    }
+
+    /**
+     * Enables the deadline of the moves of the distant players: a distant player which has not played after the given
+     * time is replaced for this move by a simulated player of FALLBACK_ITERATIONS iterations (see DeadlinePlayer).
+     * Applies to the games started afterwards
+     * @param maxTime (double): the maximal time of a move of a distant player, in seconds
+     */
+    public void enableMoveDeadline(double maxTime) {
+        Preconditions.checkArgument(maxTime > 0);
+        moveDeadline = maxTime;
+    }
+
+    /**
+     * Accepts the connections of the distant players until the server is closed, starting a game each time a table
+     * has all its distant players
+     */
+    public void run() {
+        try {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                if (selector != null) {
+                    waiting.add(selector.register(channel, true));
+                }
+                else {
+                    RemotePlayerClient client = new RemotePlayerClient(channel.socket());
+                    client.enableBatching(LINGER_TIME);
+                    waiting.add(client);
+                }
+                waitingSeats.incrementAndGet();
+                if (waiting.size() == remoteSeats) {
+                    dropDisconnected();
+                }
+                if (waiting.size() == remoteSeats) {
+                    startTable(new ArrayList<>(waiting));
+                    waiting.clear();
+                }
+            }
+        }
+        catch (ClosedChannelException e) {}
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            for (Player p: waiting) {
+                closeQuietly(p);
+            }
+            waitingSeats.addAndGet(-waiting.size());
+            waiting.clear();
+        }
+    }
+
+    /**
+     * Closes the server: no connection is accepted anymore and the games not started are abandoned, the games in
+     * progress ending normally (the thread of input/output is stopped after them)
+     */
+    @Override
+    public void close() {
+        try {
+            serverChannel.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            tables.shutdown();
+            if (selector != null) {
+                Thread closing = new Thread(() -> {
+                    try {
+                        tables.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                    }
+                    catch (InterruptedException e) {}
+                    selector.close();
+                });
+                closing.setDaemon(true);
+                closing.start();
+            }
+        }
+    }
+
+    /**
+     * Gives the port on which the server accepts the connections
+     * @return (int): the port
+     */
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Tells if the games run on virtual threads or on the bounded pool of platform threads
+     * @return (boolean): true if they run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Gives the number of games in progress
+     * @return (int): the number of active tables
+     */
+    public int activeTables() {
+        return activeTables.get();
+    }
+
+    /**
+     * Gives the number of tables complete but waiting for a thread (always 0 with virtual threads)
+     * @return (int): the number of queued tables
+     */
+    public int queuedTables() {
+        return queuedTables.get();
+    }
+
+    /**
+     * Gives the number of games which ended, normally or not
+     * @return (int): the number of finished tables
+     */
+    public int finishedTables() {
+        return finishedTables.get();
+    }
+
+    /**
+     * Gives the number of games stopped by an error, most often the disconnection of a distant player
+     * @return (int): the number of failed tables
+     */
+    public int failedTables() {
+        return failedTables.get();
+    }
+
+    /**
+     * Gives the number of moves of the distant players played by a simulated player because of the deadline, in the
+     * finished games
+     * @return (int): the number of moves after the deadline
+     */
+    public int moveTimeouts() {
+        return moveTimeouts.get();
+    }
+
+    /**
+     * Gives the number of distant players connected: playing, at a queued table or waiting for the next table
+     * @return (int): the number of connected seats
+     */
+    public int connectedSeats() {
+        return activeSeats.get()+waitingSeats.get();
+    }
+
+    /**
+     * Gives the number of distant players which are not playing yet (at a queued table or waiting for the next one)
+     * @return (int): the number of waiting seats
+     */
+    public int waitingSeats() {
+        return waitingSeats.get();
+    }
+
+    /**
+     * Gives the number of seats (distant and simulated players) of the games in progress
+     * @return (int): the number of seats playing
+     */
+    public int playingSeats() {
+        return activeTables.get()*PlayerId.COUNT;
+    }
+
+    /**
+     * Removes from the table being filled the distant players which disconnected while they were waiting, so that they
+     * are replaced by the next connections instead of making the game of the others fail
+     */
+    private void dropDisconnected() {
+        Iterator<Player> it = waiting.iterator();
+        while (it.hasNext()) {
+            Player p = it.next();
+            if (!isConnected(p)) {
+                closeQuietly(p);
+                it.remove();
+                waitingSeats.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Submits the game of a table whose distant players are all connected
+     * @param remotePlayers (List<Player>): the distant players of the table
+     */
+    private void startTable(List<Player> remotePlayers) {
+        long gameSeed = rng.nextLong();
+        long[] playerSeeds = new long[PlayerId.COUNT];
+        for (int i=0; i<PlayerId.COUNT; ++i) {
+            playerSeeds[i] = rng.nextLong();
+        }
+        queuedTables.incrementAndGet();
+        tables.execute(() -> playTable(remotePlayers, gameSeed, playerSeeds));
+    }
+
+    /**
+     * Plays the game of a table, then closes the connections of its distant players
+     * @param remotePlayers (List<Player>): the distant players of the table, seated first
+     * @param gameSeed (long): the seed of the game
+     * @param playerSeeds (long[]): the seeds of the simulated players, indexed by the ordinal of their seat
+     */
+    private void playTable(List<Player> remotePlayers, long gameSeed, long[] playerSeeds) {
+        queuedTables.decrementAndGet();
+        waitingSeats.addAndGet(-remotePlayers.size());
+        activeSeats.addAndGet(remotePlayers.size());
+        activeTables.incrementAndGet();
+        double maxTime = moveDeadline;
+        List<DeadlinePlayer> deadlinePlayers = new ArrayList<>();
+        try {
+            Map<PlayerId, Player> players = new HashMap<>();
+            Map<PlayerId, String> playerNames = new HashMap<>();
+            Map<PlayerId, Boolean> helpMap = new HashMap<>();
+            for (PlayerId id: PlayerId.ALL) {
+                int i = id.ordinal();
+                if (i < remotePlayers.size()) {
+                    if (maxTime > 0) {
+                        DeadlinePlayer p = new DeadlinePlayer(remotePlayers.get(i), new MctsPlayer(id, playerSeeds[i], FALLBACK_ITERATIONS), maxTime);
+                        deadlinePlayers.add(p);
+                        players.put(id, p);
+                    }
+                    else {
+                        players.put(id, remotePlayers.get(i));
+                    }
+                    playerNames.put(id, REMOTE_NAME+(i+1));
+                }
+                else {
+                    Player simulated = new MctsPlayer(id, playerSeeds[i], iterations);
+                    players.put(id, pace > 0 ? new PacedPlayer(simulated, pace) : simulated);
+                    playerNames.put(id, SIMULATED_NAME+(i+1));
+                }
+                helpMap.put(id, false);
+            }
+
+            JassGame jass = new JassGame(gameSeed, players, playerNames, helpMap);
+            while (!jass.isGameOver()) {
+                jass.advanceToEndOfNextTrick();
+                if (pace > 0) {
+                    Thread.sleep((long)(pace*MILLISECONDS_PER_SECOND));
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            failedTables.incrementAndGet();
+            System.err.println("Game stopped: "+e);
+        }
+        catch (InterruptedException e) {
+            failedTables.incrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            for (Player p: remotePlayers) {
+                closeQuietly(p);
+            }
+            for (DeadlinePlayer p: deadlinePlayers) {
+                moveTimeouts.addAndGet(p.timeouts());
+            }
+            activeTables.decrementAndGet();
+            activeSeats.addAndGet(-remotePlayers.size());
+            finishedTables.incrementAndGet();
+        }
+    }
+
+    /**
+     * Tells if a distant player is still connected
+     * @param p (Player): the distant player (RemotePlayerClient or AsyncRemotePlayer)
+     * @return (boolean): true if its connection is still open
+     */
+    private static boolean isConnected(Player p) {
+        return p instanceof AsyncRemotePlayer ? ((AsyncRemotePlayer)p).isConnected() : ((RemotePlayerClient)p).isConnected();
+    }
+
+    /**
+     * Closes the connection of a distant player, ignoring the errors (it may already be closed)
+     * @param p (Player): the distant player (RemotePlayerClient or AsyncRemotePlayer)
+     */
+    private static void closeQuietly(Player p) {
+        try {
+            ((AutoCloseable)p).close();
+        }
+        catch (Exception e) {}
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task, if the virtual machine has them. The method is
+     * looked up by reflection so that the game still compiles and runs with Java 8
+     * @return (ExecutorService): the executor, null if there are no virtual threads
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
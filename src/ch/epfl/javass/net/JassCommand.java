@@ -5,7 +5,7 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * Enumeration which contains the seven types of messages exchanged by the client and the server
+ * Enumeration which contains the types of messages exchanged by the client and the server
  * @author Liam Mouzaoui (295797)
  * @author Remi Delacourt (300849)
  */
@@ -27,11 +27,13 @@ public enum JassCommand {
     /** setHelp*/
     HELP,
     /** resetHelp*/
-    RESH;
+    RESH,
+    /** negotiation of the protocol (see JassMessage) */
+    PROT;
 
     
   /**The number of values of JassCommand **/
-    public static final int COUNT = 9;
+    public static final int COUNT = 10;
     
     /** List containing every values of the enumerated type PlayerId (in order of declaration) **/
     public static final List<JassCommand> ALL = Collections.unmodifiableList(Arrays.asList(values()));
@@ -0,0 +1,449 @@
+package ch.epfl.javass.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import ch.epfl.javass.Preconditions;
+import ch.epfl.javass.jass.PlayerId;
+
+/**
+ * Class which represents a message exchanged by the client and the server (a command and its packed fields),
+ * independently of the way it is encoded:
+ * - in the text protocol, a line of ASCII characters where the fields are written in hexadecimal and the names in
+ *   Base64 (the original protocol, see StringSerializer),
+ * - in the binary protocol, a frame made of the ordinal of the command (one byte) followed by the fields written
+ *   as raw bytes (1 byte for the ordinals, 4 for the packed tricks, 8 for the packed sets and scores), the names
+ *   being written in modified UTF-8 preceded by their length (see DataOutput.writeUTF).
+ * The answer to CARD is a line containing the packed card in hexadecimal in the text protocol, and one byte in the
+ * binary protocol. It can be preceded by heartbeats (an empty line, or the byte HEARTBEAT_BYTE), sent by the server
+ * every HEARTBEAT_PERIOD while its player chooses the card, so that the client can tell a slow player from a lost one.
+ * The features (the binary protocol and the heartbeats) are negotiated by the client, which sends the text message
+ * PROT with the set of features it proposes; the server answers with a text line containing the set of the features
+ * it accepts among them (NO_FEATURE to keep the text protocol without heartbeats)
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class JassMessage {
+
+    /** The features negotiated with PROT (bits of a set): the binary protocol and the heartbeats **/
+    public static final int BINARY = 1, HEARTBEATS = 2, NO_FEATURE = 0;
+
+    /** The heartbeat in the binary protocol (a byte which is not a card), and the time between two heartbeats in seconds **/
+    public static final int HEARTBEAT_BYTE = 0xFF;
+    public static final double HEARTBEAT_PERIOD = 1;
+
+    private static final String FIELD_DELIMITER = ",", GROUP_DELIMITER = " ";
+    private static final String HELP = "1", NO_HELP = "0";
+    private static final char END_OF_LINE = '\n';
+
+    //For each command (by ordinal): the size in bytes of each field in the binary protocol, and the number of
+    //fields of each group of the text protocol (the groups being separated by spaces and the fields of a group by commas)
+    private static final int[][] FIELD_BYTES = {
+            /*PLRS*/ {Byte.BYTES, Byte.BYTES}, /*TRMP*/ {Byte.BYTES}, /*HAND*/ {Long.BYTES}, /*TRCK*/ {Integer.BYTES},
+            /*CARD*/ {Long.BYTES, Long.BYTES, Integer.BYTES, Long.BYTES}, /*SCOR*/ {Long.BYTES}, /*WINR*/ {Byte.BYTES},
+            /*HELP*/ {Byte.BYTES, Long.BYTES, Long.BYTES, Integer.BYTES, Long.BYTES}, /*RESH*/ {}, /*PROT*/ {Byte.BYTES}};
+    private static final int[][] TEXT_GROUPS = {
+            /*PLRS*/ {1}, /*TRMP*/ {1}, /*HAND*/ {1}, /*TRCK*/ {1}, /*CARD*/ {3, 1}, /*SCOR*/ {1}, /*WINR*/ {1},
+            /*HELP*/ {1, 3, 1}, /*RESH*/ {}, /*PROT*/ {1}};
+
+    //For each command, the size of its frame in the binary protocol (without the names of PLRS)
+    private static final int[] FRAME_SIZES = frameSizes();
+    private static final String[] NO_NAMES = {};
+
+    private final JassCommand command;
+    private final long[] fields;
+    private final String[] names;
+
+    /**
+     * Constructor of JassMessage
+     * @param command (JassCommand): the command
+     * @param fields (long[]): the fields
+     * @param names (String[]): the names of the players (PLRS only, empty otherwise)
+     */
+    private JassMessage(JassCommand command, long[] fields, String[] names) {
+        this.command = command;
+        this.fields = fields;
+        this.names = names;
+    }
+
+    /**
+     * Creates a message of the given command (other than PLRS)
+     * @param command (JassCommand): the command
+     * @param fields (long...): its fields, in order (the packed ints and the ordinals being given as longs)
+     * @return (JassMessage): the message
+     * @throws IllegalArgumentException if the number of fields is not the one of the command
+     */
+    public static JassMessage of(JassCommand command, long... fields) {
+        Preconditions.checkArgument(command != JassCommand.PLRS && fields.length == FIELD_BYTES[command.ordinal()].length);
+        return new JassMessage(command, fields.clone(), NO_NAMES);
+    }
+
+    /**
+     * Creates the message PLRS
+     * @param ownId (PlayerId): the identity of the player receiving the message
+     * @param names (String[]): the names of the players, indexed by their ordinal
+     * @param help (boolean[]): for each player, true if the help is shown to it
+     * @return (JassMessage): the message
+     */
+    public static JassMessage players(PlayerId ownId, String[] names, boolean[] help) {
+        Preconditions.checkArgument(names.length == PlayerId.COUNT && help.length == PlayerId.COUNT);
+        int helpBits = 0;
+        for (int i=0; i<PlayerId.COUNT; ++i) {
+            if (help[i]) {
+                helpBits |= 1 << i;
+            }
+        }
+        return new JassMessage(JassCommand.PLRS, new long[] {ownId.ordinal(), helpBits}, names.clone());
+    }
+
+    /**
+     * Gives the command of the message
+     * @return (JassCommand): the command
+     */
+    public JassCommand command() {
+        return command;
+    }
+
+    /**
+     * Gives the field of the given index as an int (for the packed tricks and the ordinals)
+     * @param index (int): the index of the field
+     * @return (int): the field
+     */
+    public int intField(int index) {
+        return (int)fields[index];
+    }
+
+    /**
+     * Gives the field of the given index as a long (for the packed sets and scores)
+     * @param index (int): the index of the field
+     * @return (long): the field
+     */
+    public long longField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Gives the name of the given player (PLRS only)
+     * @param id (PlayerId): the player
+     * @return (String): its name
+     */
+    public String name(PlayerId id) {
+        return names[id.ordinal()];
+    }
+
+    /**
+     * Tells if the help is shown to the given player (PLRS only)
+     * @param id (PlayerId): the player
+     * @return (boolean): true if the help is shown to it
+     */
+    public boolean help(PlayerId id) {
+        return (fields[1] & (1 << id.ordinal())) != 0;
+    }
+
+    /**
+     * Writes the message in the text protocol, as a line
+     * @param out (OutputStream): the stream in which the message is written
+     * @throws IOException if I/O operations are interrupted
+     */
+    public void writeText(OutputStream out) throws IOException {
+        out.write(toText().getBytes(StandardCharsets.US_ASCII));
+        out.write(END_OF_LINE);
+    }
+
+    /**
+     * Writes the message in the binary protocol
+     * @param out (DataOutputStream): the stream in which the message is written
+     * @throws IOException if I/O operations are interrupted
+     */
+    public void writeBinary(DataOutputStream out) throws IOException {
+        //The fields are written at once, the calls to the stream costing more than the encoding
+        int[] bytes = FIELD_BYTES[command.ordinal()];
+        byte[] frame = new byte[FRAME_SIZES[command.ordinal()]];
+        frame[0] = (byte)command.ordinal();
+        int offset = 1;
+        for (int i=0; i<bytes.length; ++i) {
+            for (int b=bytes[i]-1; b>=0; --b) {
+                frame[offset++] = (byte)(fields[i] >>> (Byte.SIZE*b));
+            }
+        }
+        out.write(frame);
+        for (String name: names) {
+            out.writeUTF(name);
+        }
+    }
+
+    /**
+     * Writes the message in the binary protocol at the position of the given buffer
+     * @param buffer (ByteBuffer): the buffer (big-endian)
+     * @throws BufferOverflowException if the buffer has not enough space left (its position is then undefined)
+     */
+    public void writeBinary(ByteBuffer buffer) {
+        if (command == JassCommand.PLRS) {
+            buffer.put(toBinary());
+            return;
+        }
+        buffer.put((byte)command.ordinal());
+        int[] bytes = FIELD_BYTES[command.ordinal()];
+        for (int i=0; i<bytes.length; ++i) {
+            switch (bytes[i]) {
+            case Byte.BYTES:
+                buffer.put((byte)fields[i]);
+                break;
+            case Integer.BYTES:
+                buffer.putInt((int)fields[i]);
+                break;
+            default:
+                buffer.putLong(fields[i]);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Gives the message encoded in the binary protocol
+     * @return (byte[]): the frame of the message
+     */
+    public byte[] toBinary() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeBinary(new DataOutputStream(bytes));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Gives the message encoded in the text protocol (without the end of line)
+     * @return (String): the line of the message
+     */
+    public String toText() {
+        if (command == JassCommand.PLRS) {
+            String[] serializedNames = new String[PlayerId.COUNT];
+            String[] help = new String[PlayerId.COUNT];
+            for (PlayerId id: PlayerId.ALL) {
+                serializedNames[id.ordinal()] = StringSerializer.serializeString(name(id));
+                help[id.ordinal()] = help(id) ? HELP : NO_HELP;
+            }
+            return StringSerializer.combine(GROUP_DELIMITER, command.name(), StringSerializer.serializeInt(intField(0)),
+                    StringSerializer.combine(FIELD_DELIMITER, serializedNames), StringSerializer.combine(FIELD_DELIMITER, help));
+        }
+
+        int[] groups = TEXT_GROUPS[command.ordinal()];
+        String[] parts = new String[groups.length+1];
+        parts[0] = command.name();
+        int field = 0;
+        for (int g=0; g<groups.length; ++g) {
+            String[] values = new String[groups[g]];
+            for (int i=0; i<groups[g]; ++i, ++field) {
+                values[i] = FIELD_BYTES[command.ordinal()][field] == Long.BYTES ? StringSerializer.serializeLong(fields[field])
+                        : StringSerializer.serializeInt((int)fields[field]);
+            }
+            parts[g+1] = StringSerializer.combine(FIELD_DELIMITER, values);
+        }
+        return StringSerializer.combine(GROUP_DELIMITER, parts);
+    }
+
+    /**
+     * Reads a message of the text protocol from its line
+     * @param line (String): the line (without the end of line)
+     * @return (JassMessage): the message
+     * @throws IllegalArgumentException if the command is unknown
+     */
+    public static JassMessage ofText(String line) {
+        String[] parts = StringSerializer.split(line, GROUP_DELIMITER);
+        JassCommand command = JassCommand.valueOf(parts[0]);
+
+        if (command == JassCommand.PLRS) {
+            String[] serializedNames = StringSerializer.split(parts[2], FIELD_DELIMITER);
+            String[] help = StringSerializer.split(parts[3], FIELD_DELIMITER);
+            String[] names = new String[PlayerId.COUNT];
+            boolean[] helpMap = new boolean[PlayerId.COUNT];
+            for (int i=0; i<PlayerId.COUNT; ++i) {
+                names[i] = StringSerializer.deserializeString(serializedNames[i]);
+                helpMap[i] = StringSerializer.deserializeInt(help[i]) == 1;
+            }
+            return players(PlayerId.ALL.get(StringSerializer.deserializeInt(parts[1])), names, helpMap);
+        }
+
+        int[] groups = TEXT_GROUPS[command.ordinal()];
+        long[] fields = new long[FIELD_BYTES[command.ordinal()].length];
+        int field = 0;
+        for (int g=0; g<groups.length; ++g) {
+            for (String value: StringSerializer.split(parts[g+1], FIELD_DELIMITER)) {
+                long v = StringSerializer.deserializeLong(value);
+                fields[field] = FIELD_BYTES[command.ordinal()][field] == Long.BYTES ? v : (int)v;
+                ++field;
+            }
+        }
+        return new JassMessage(command, fields, NO_NAMES);
+    }
+
+    /**
+     * Reads a message of the binary protocol
+     * @param in (DataInputStream): the stream from which the message is read
+     * @return (JassMessage): the message, null if the stream ended before it
+     * @throws IOException if I/O operations are interrupted or if the command is unknown
+     */
+    public static JassMessage readBinary(DataInputStream in) throws IOException {
+        int ordinal = in.read();
+        if (ordinal < 0) {
+            return null;
+        }
+        if (ordinal >= JassCommand.COUNT) {
+            throw new IOException("Unknown Jass command: "+ordinal);
+        }
+        JassCommand command = JassCommand.ALL.get(ordinal);
+        int[] bytes = FIELD_BYTES[ordinal];
+        byte[] frame = new byte[FRAME_SIZES[ordinal]];
+        in.readFully(frame, 1, frame.length-1);
+        long[] fields = new long[bytes.length];
+        int offset = 1;
+        for (int i=0; i<bytes.length; ++i) {
+            long field = 0;
+            for (int b=0; b<bytes[i]; ++b) {
+                field = field << Byte.SIZE | (frame[offset++] & 0xFF);
+            }
+            //The packed tricks are signed ints
+            fields[i] = bytes[i] == Integer.BYTES ? (int)field : field;
+        }
+        if (command != JassCommand.PLRS) {
+            return new JassMessage(command, fields, NO_NAMES);
+        }
+        String[] names = new String[PlayerId.COUNT];
+        for (int i=0; i<names.length; ++i) {
+            names[i] = in.readUTF();
+        }
+        return new JassMessage(command, fields, names);
+    }
+
+    /**
+     * Writes the answer to CARD
+     * @param out (OutputStream): the stream in which the answer is written
+     * @param pkCard (int): the packed card
+     * @param binary (boolean): true to write it in the binary protocol, false in the text protocol
+     * @throws IOException if I/O operations are interrupted
+     */
+    public static void writeCard(OutputStream out, int pkCard, boolean binary) throws IOException {
+        if (binary) {
+            out.write(pkCard);
+        }
+        else {
+            out.write(StringSerializer.serializeInt(pkCard).getBytes(StandardCharsets.US_ASCII));
+            out.write(END_OF_LINE);
+        }
+    }
+
+    /**
+     * Writes a heartbeat
+     * @param out (OutputStream): the stream in which the heartbeat is written
+     * @param binary (boolean): true to write it in the binary protocol, false in the text protocol
+     * @throws IOException if I/O operations are interrupted
+     */
+    public static void writeHeartbeat(OutputStream out, boolean binary) throws IOException {
+        out.write(binary ? HEARTBEAT_BYTE : END_OF_LINE);
+    }
+
+    /**
+     * Reads the answer to CARD, skipping the heartbeats preceding it
+     * @param in (InputStream): the stream (buffered)
+     * @param binary (boolean): true to read it in the binary protocol, false in the text protocol
+     * @return (int): the packed card
+     * @throws IOException if I/O operations are interrupted or if the stream ends before the answer
+     */
+    public static int readCard(InputStream in, boolean binary) throws IOException {
+        while (true) {
+            if (binary) {
+                int c = in.read();
+                if (c < 0) {
+                    throw new EOFException();
+                }
+                if (c != HEARTBEAT_BYTE) {
+                    return c;
+                }
+            }
+            else {
+                String line = readLine(in);
+                if (line == null) {
+                    throw new EOFException();
+                }
+                if (!line.isEmpty()) {
+                    return StringSerializer.deserializeInt(line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a line of ASCII characters (the text protocol), directly from the stream so that the stream can then
+     * be read in the binary protocol
+     * @param in (InputStream): the stream (buffered)
+     * @return (String): the line without the end of line, null if the stream ended before it
+     * @throws IOException if I/O operations are interrupted or if the stream ends in the middle of the line
+     */
+    public static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != END_OF_LINE) {
+            if (c < 0) {
+                if (line.length() == 0) {
+                    return null;
+                }
+                throw new EOFException();
+            }
+            line.append((char)c);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Computes the size of the frame of each command in the binary protocol
+     * @return (int[]): the sizes in bytes (the command and its fields), indexed by the ordinal of the command
+     */
+    private static int[] frameSizes() {
+        int[] sizes = new int[JassCommand.COUNT];
+        for (int c=0; c<JassCommand.COUNT; ++c) {
+            sizes[c] = Byte.BYTES+Arrays.stream(FIELD_BYTES[c]).sum();
+        }
+        return sizes;
+    }
+
+    /**
+     * Override of the method equals
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof JassMessage)) {
+            return false;
+        }
+        JassMessage m = (JassMessage)o;
+        return command == m.command && Arrays.equals(fields, m.fields) && Arrays.equals(names, m.names);
+    }
+
+    /**
+     * Override of the method hashCode
+     */
+    @Override
+    public int hashCode() {
+        return 31*(31*command.hashCode()+Arrays.hashCode(fields))+Arrays.hashCode(names);
+    }
+
+    /**
+     * Override of the method toString
+     */
+    @Override
+    public String toString() {
+        return toText();
+    }
+}
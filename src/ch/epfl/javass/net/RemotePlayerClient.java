@@ -1,17 +1,28 @@
 package ch.epfl.javass.net;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.nio.charset.StandardCharsets;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import ch.epfl.javass.Preconditions;
 import ch.epfl.javass.jass.Card;
 import ch.epfl.javass.jass.Card.Color;
 import ch.epfl.javass.jass.CardSet;
@@ -23,36 +34,217 @@ import ch.epfl.javass.jass.Trick;
 import ch.epfl.javass.jass.TurnState;
 
 /**
- * Class which represents the client for a remote player 
+ * Class which represents the client for a remote player
+ * The messages are sent in the binary protocol if the server accepts it (see JassMessage), in the text protocol otherwise.
+ * A client proposing neither the binary protocol nor the heartbeats sends exactly the messages of the original text protocol.
+ * With batching (see enableBatching), the notifications are kept and sent together, just before the next request of a
+ * card or at the latest after a short linger time, a notification replacing the one of the same kind not sent yet.
+ * When the server sends heartbeats while its player chooses a card (negotiated at the connection), a server
+ * silent for longer than the read timeout is considered as lost. A client connected to a host name then resumes the
+ * game: it connects again (for at most the resume time) and sends again the players, the trump, the hand, the score
+ * and the trick before the message which failed
  * @author Liam Mouzaoui (295797)
  * @author Remi Delacourt (300849)
  */
 public final class RemotePlayerClient implements Player, AutoCloseable {
 
+    /** Default timeouts (in seconds): of the connection, of the silence of the server, and of the resume of the game **/
+    public static final double DEFAULT_CONNECT_TIMEOUT = 5, DEFAULT_READ_TIMEOUT = 5, DEFAULT_RESUME_TIME = 15;
+
     private Socket s;
-    private BufferedReader r;
-    private BufferedWriter w;
+    private BufferedInputStream r;
+    private DataOutputStream w;
+
+    //The address of the server (null if the client has been given a connected socket, which can not be resumed) and
+    //the timeouts, in milliseconds for the ones of the socket and in nanoseconds for the resume time
+    private final String hostName;
+    private final int port;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long resumeTime;
+
+    //The features proposed to the server, and the ones used (or proposed, while the answer of the server has not been read)
+    private final boolean proposesBinary;
+    private final boolean proposesHeartbeats;
+    private boolean binary;
+    private boolean heartbeats;
+    private boolean negotiating;
+
+    //The notifications which replace the previous one of the same kind (the state it gives being complete), and the ones
+    //made obsolete by the reset of the help
+    private static final Set<JassCommand> COALESCED = EnumSet.of(JassCommand.HAND, JassCommand.TRMP, JassCommand.TRCK,
+            JassCommand.SCOR, JassCommand.HELP);
+    private static final Set<JassCommand> RESET_BY_RESH = EnumSet.of(JassCommand.HELP, JassCommand.RESH);
+
+    //The notifications giving the state of the game sent again when the game is resumed, in this order
+    private static final List<JassCommand> REPLAYED = Arrays.asList(JassCommand.PLRS, JassCommand.TRMP, JassCommand.HAND,
+            JassCommand.SCOR, JassCommand.TRCK);
+    private static final Set<JassCommand> REPLAYED_AND_CARD = EnumSet.of(JassCommand.PLRS, JassCommand.TRMP, JassCommand.HAND,
+            JassCommand.TRCK, JassCommand.SCOR, JassCommand.CARD);
+
+    private static final double NANOSECONDS_PER_SECOND = 1e9, MILLISECONDS_PER_SECOND = 1000;
+    private static final long RETRY_DELAY = 200;
+    //The time a read waits for the end of the stream when checking the connection, in milliseconds
+    private static final int PROBE_TIMEOUT = 1;
+
+    //The timer of the linger time, shared by all the clients
+    private static final ScheduledExecutorService LINGER_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RemotePlayerClient linger");
+        t.setDaemon(true);
+        return t;
+    });
+
+    //The notifications not sent yet (with batching), and the error of the last flush by the timer, thrown by the next call
+    private final List<JassMessage> pending = new ArrayList<>();
+    private boolean batching;
+    private long lingerTime;
+    private ScheduledFuture<?> lingerFlush;
+    private IOException flushError;
+
+    //The last notification of each kind giving the state of the game, sent again when the game is resumed
+    private final Map<JassCommand, JassMessage> lastState = new EnumMap<>(JassCommand.class);
+
+    //The number of flushes of the stream (each one being a write of the socket), of messages sent and of resumes
+    private int flushes;
+    private int messages;
+    private int resumes;
 
-    
-    
     /**
-     * Constructor of RemotePlayerClient
+     * Constructor of RemotePlayerClient, proposing the binary protocol to the server
      * @param hostName (String): the name of the host on which the server of the distant player executes itself
      * @throws IOException if I/O operations are interrupted
      */
     public RemotePlayerClient(String hostName) throws IOException {
-        s = new Socket(hostName, RemotePlayerServer.SERVER_PORT);
-        r = new BufferedReader(new InputStreamReader(s.getInputStream(),StandardCharsets.US_ASCII));
-        w = new BufferedWriter( new OutputStreamWriter(s.getOutputStream(),StandardCharsets.US_ASCII));
+        this(hostName, true);
     }
 
+    /**
+     * Constructor of RemotePlayerClient, with the default timeouts
+     * @param hostName (String): the name of the host on which the server of the distant player executes itself
+     * @param binary (boolean): true to propose the binary protocol and the heartbeats to the server, false to use the
+     * original text protocol: nothing is proposed (no PROT is sent, so that a server not knowing the negotiation
+     * understands every message), and a silent server is then never considered as lost (the game is still resumed
+     * after an error of the connection)
+     * @throws IOException if I/O operations are interrupted
+     */
+    public RemotePlayerClient(String hostName, boolean binary) throws IOException {
+        this(hostName, RemotePlayerServer.SERVER_PORT, binary, binary, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_RESUME_TIME);
+    }
+
+    /**
+     * Constructor of RemotePlayerClient
+     * @param hostName (String): the name of the host on which the server of the distant player executes itself
+     * @param port (int): the port of the server
+     * @param binary (boolean): true to propose the binary protocol to the server, false to use the
+     * text protocol
+     * @param heartbeats (boolean): true to propose the heartbeats to the server. If neither the binary protocol nor the
+     * heartbeats are proposed, the messages are exactly the ones of the original text protocol (no PROT is sent)
+     * @param connectTimeout (double): the maximal time to connect to the server, in seconds
+     * @param readTimeout (double): the maximal silence of the server while it is waited for, if it sends heartbeats, in seconds
+     * @param resumeTime (double): the maximal time to resume the game after a lost connection, in seconds (0 to never resume)
+     * @throws IOException if I/O operations are interrupted
+     */
+    public RemotePlayerClient(String hostName, int port, boolean binary, boolean heartbeats, double connectTimeout,
+            double readTimeout, double resumeTime) throws IOException {
+        Preconditions.checkArgument(connectTimeout > 0 && readTimeout > JassMessage.HEARTBEAT_PERIOD && resumeTime >= 0);
+        this.hostName = hostName;
+        this.port = port;
+        this.proposesBinary = binary;
+        this.proposesHeartbeats = heartbeats;
+        this.connectTimeout = (int)(connectTimeout*MILLISECONDS_PER_SECOND);
+        this.readTimeout = (int)(readTimeout*MILLISECONDS_PER_SECOND);
+        this.resumeTime = (long)(resumeTime*NANOSECONDS_PER_SECOND);
+        connect();
+    }
+
+    /**
+     * Constructor of RemotePlayerClient from an already connected socket (used by the game server, to which the
+     * distant players connect themselves), proposing the binary protocol to the server
+     * @param s (Socket): the socket connected to the distant player
+     * @throws IOException if I/O operations are interrupted
+     */
+    public RemotePlayerClient(Socket s) throws IOException {
+        this(s, true);
+    }
+
+    /**
+     * Constructor of RemotePlayerClient from an already connected socket, which can not be resumed: a lost connection
+     * stops the game
+     * @param s (Socket): the socket connected to the distant player
+     * @param binary (boolean): true to propose the binary protocol and the heartbeats to the server, false to use the
+     * original text protocol (nothing is proposed, no PROT being sent)
+     * @throws IOException if I/O operations are interrupted
+     */
+    public RemotePlayerClient(Socket s, boolean binary) throws IOException {
+        this.hostName = null;
+        this.port = s.getPort();
+        this.proposesBinary = binary;
+        this.proposesHeartbeats = binary;
+        this.connectTimeout = (int)(DEFAULT_CONNECT_TIMEOUT*MILLISECONDS_PER_SECOND);
+        this.readTimeout = (int)(DEFAULT_READ_TIMEOUT*MILLISECONDS_PER_SECOND);
+        this.resumeTime = 0;
+        open(s);
+    }
+
+
+    /**
+     * Enables the batching of the notifications: they are sent just before the next request of a card, or at the latest
+     * after the given linger time (so that a player watching the game sees the end of the tricks), a notification
+     * replacing the one of the same kind not sent yet. The segments are then sent without delay (TCP_NODELAY), since they
+     * are already grouped
+     * @param lingerTime (double): the maximal time a notification waits before being sent, in seconds
+     * @throws IOException if the option of the socket can not be set
+     */
+    public synchronized void enableBatching(double lingerTime) throws IOException {
+        Preconditions.checkArgument(lingerTime >= 0);
+        s.setTcpNoDelay(true);
+        this.lingerTime = (long)(lingerTime*NANOSECONDS_PER_SECOND);
+        batching = true;
+    }
+
+    /**
+     * Gives the number of bytes sent to the server (since the last connection)
+     * @return (int): the number of bytes
+     */
+    public synchronized int bytesSent() {
+        return w.size();
+    }
+
+    /**
+     * Gives the number of writes of the socket, one per group of messages sent together
+     * @return (int): the number of writes
+     */
+    public synchronized int writes() {
+        return flushes;
+    }
+
+    /**
+     * Gives the number of messages sent to the server, without the ones replaced by the batching
+     * @return (int): the number of messages
+     */
+    public synchronized int messagesSent() {
+        return messages;
+    }
 
     /**
-     * Close All the different streams
+     * Gives the number of times the game has been resumed after a lost connection
+     * @return (int): the number of resumes
+     */
+    public synchronized int resumes() {
+        return resumes;
+    }
+
+    /**
+     * Close All the different streams, after having sent the notifications waiting
      */
     @Override
     public void close() throws Exception {
         try{
+            synchronized (this) {
+                if (!pending.isEmpty() && flushError == null) {
+                    flushPending();
+                }
+            }
             s.close();
             r.close();
             w.close();
@@ -63,87 +255,97 @@ public final class RemotePlayerClient implements Player, AutoCloseable {
     }
 
     /**
-     * override of the method cardToPlay of player
+     * Tells if the connection is still open, without waiting: the next byte of the server (if it has already been received)
+     * is read and kept for the next read, the end of the stream or an error meaning that the server is gone
+     * (used by the game server before seating the distant player)
+     * @return (boolean): true if the server is still connected
      */
-    @Override
-    public Card cardToPlay(TurnState state, CardSet hand) {
-
-        //Serialization and combination of the different informations we need to send 
-        String keyWord = JassCommand.CARD.name();
-
-        String score = StringSerializer.serializeLong(state.packedScore());
-        String unplayedCard = StringSerializer.serializeLong(state.packedUnplayedCards());
-        String trick = StringSerializer.serializeInt(state.packedTrick());
-        String turnState = StringSerializer.combine(",", score, unplayedCard, trick);
-
-        String Hand = StringSerializer.serializeLong(hand.packed());
-        String message = StringSerializer.combine(" ", keyWord, turnState, Hand);
-
-        //Writing the information in the in the Output Stream
+    public synchronized boolean isConnected() {
+        if (s.isClosed() || flushError != null) {
+            return false;
+        }
         try {
-            w.write(message);
-            w.write('\n');
-            w.flush();
-            String card = r.readLine();
-            int c = StringSerializer.deserializeInt(card);
+            int timeout = s.getSoTimeout();
+            s.setSoTimeout(PROBE_TIMEOUT);
+            try {
+                r.mark(1);
+                if (r.read() < 0) {
+                    return false;
+                }
+                r.reset();
+            }
+            catch (SocketTimeoutException e) {}
+            finally {
+                s.setSoTimeout(timeout);
+            }
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
 
-            return Card.ofPacked(c);
+    /**
+     * Tells if the messages are sent in the binary protocol (reading the answer of the server if needed)
+     * @return (boolean): true if the binary protocol is used, false if it is the text protocol
+     */
+    public synchronized boolean isBinary() {
+        try {
+            negotiate();
         }
         catch(IOException e) {
             throw new UncheckedIOException(e);
         }
+        return binary;
     }
 
     /**
-     * override of the method setPlayers of player
+     * override of the method cardToPlay of player
      */
     @Override
-    public  void setPlayers(PlayerId ownId, Map<PlayerId, String> playerNames, Map<PlayerId, Boolean> helpMap) {
-
-        String keyWord = JassCommand.PLRS.name();
-        String ownIndex = StringSerializer.serializeInt(ownId.ordinal());
-        String player1 = StringSerializer.serializeString(playerNames.get(PlayerId.PLAYER_1));
-        String player2 = StringSerializer.serializeString(playerNames.get(PlayerId.PLAYER_2));
-        String player3 = StringSerializer.serializeString(playerNames.get(PlayerId.PLAYER_3));
-        String player4 = StringSerializer.serializeString(playerNames.get(PlayerId.PLAYER_4));
-        List<String> helpList = new ArrayList<>();
-        
-        for (int i=0; i<PlayerId.COUNT;++i) {
-            if (helpMap.get(PlayerId.ALL.get(i))) { helpList.add("1");}
-            else { helpList.add("0");}
+    public Card cardToPlay(TurnState state, CardSet hand) {
+        JassMessage message = JassMessage.of(JassCommand.CARD, state.packedScore(), state.packedUnplayedCards(),
+                state.packedTrick(), hand.packed());
+        while (true) {
+            try {
+                synchronized (this) {
+                    if (flushError != null) {
+                        throw flushError;
+                    }
+                    //The request is sent after the notifications waiting
+                    negotiate();
+                    pending.add(message);
+                    flushPending();
+                }
+                return Card.ofPacked(JassMessage.readCard(r, binary));
+            }
+            catch(IOException e) {
+                //The request is sent again once the game is resumed
+                resume(e);
+            }
         }
+    }
 
-        String names = StringSerializer.combine(",", player1, player2, player3, player4);
-        
-        String help =StringSerializer.combine(",", helpList.get(0),helpList.get(1),helpList.get(2),helpList.get(3));
-
-        String message = StringSerializer.combine(" ", keyWord, ownIndex, names, help);
-
-        try {
-            w.write(message);
-            w.write('\n');
-            w.flush();
-        }
-        catch(IOException e) {
-            throw new UncheckedIOException(e);
+    /**
+     * override of the method setPlayers of player
+     */
+    @Override
+    public  void setPlayers(PlayerId ownId, Map<PlayerId, String> playerNames, Map<PlayerId, Boolean> helpMap) {
+        String[] names = new String[PlayerId.COUNT];
+        boolean[] help = new boolean[PlayerId.COUNT];
+        for (PlayerId id: PlayerId.ALL) {
+            names[id.ordinal()] = playerNames.get(id);
+            help[id.ordinal()] = helpMap.get(id);
         }
-    } 
+        sendUnchecked(JassMessage.players(ownId, names, help));
+    }
 
     /**
      * override of the method updateHand of player
      */
     @Override
     public void updateHand(CardSet newHand) {
-        String s1 =JassCommand.HAND.name();
-        String s2 = StringSerializer.serializeLong(newHand.packed());
-        try {
-            w.write(StringSerializer.combine(" ", s1, s2));
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
+        sendUnchecked(JassMessage.of(JassCommand.HAND, newHand.packed()));
     }
 
     /**
@@ -151,17 +353,7 @@ public final class RemotePlayerClient implements Player, AutoCloseable {
      */
     @Override
     public void setTrump(Color trump) {
-
-        String trmp = JassCommand.TRMP.name();
-        String pkTrmp = StringSerializer.serializeInt(trump.ordinal());
-        try {
-            w.write(StringSerializer.combine(" ", trmp, pkTrmp));
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-
+        sendUnchecked(JassMessage.of(JassCommand.TRMP, trump.ordinal()));
     }
 
     /**
@@ -169,16 +361,7 @@ public final class RemotePlayerClient implements Player, AutoCloseable {
      */
     @Override
     public void updateTrick(Trick newTrick) {
-
-        String trck =JassCommand.TRCK.name();
-        String pkTrck = StringSerializer.serializeInt(newTrick.packed());
-        try {
-            w.write(StringSerializer.combine(" ", trck, pkTrck));
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        sendUnchecked(JassMessage.of(JassCommand.TRCK, newTrick.packed()));
     }
 
     /**
@@ -186,16 +369,7 @@ public final class RemotePlayerClient implements Player, AutoCloseable {
      */
     @Override
     public void updateScore(Score score) {
-
-        String scor =JassCommand.SCOR.name();
-        String pkScor = StringSerializer.serializeLong(score.packed());
-        try {
-            w.write(StringSerializer.combine(" ", scor, pkScor));
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        sendUnchecked(JassMessage.of(JassCommand.SCOR, score.packed()));
     }
 
     /**
@@ -203,58 +377,231 @@ public final class RemotePlayerClient implements Player, AutoCloseable {
      */
     @Override
     public void setWinningTeam(TeamId winningTeam) {
+        sendUnchecked(JassMessage.of(JassCommand.WINR, winningTeam.ordinal()));
+    }
+
+    /**
+     * Override of the method setHelp of player
+     */
+    public void setHelp(TurnState state, CardSet hand, PlayerId id) {
+        sendUnchecked(JassMessage.of(JassCommand.HELP, id.ordinal(), state.packedScore(), state.packedUnplayedCards(),
+                state.packedTrick(), hand.packed()));
+    }
 
-        String winr =JassCommand.WINR.name();
-        String team = StringSerializer.serializeInt(winningTeam.ordinal());
+    /**
+     * Override of the method resetHelp of player
+     */
+    public void resetHelp() {
+        sendUnchecked(JassMessage.of(JassCommand.RESH));
+    }
+
+    /**
+     * Sends the given notification in the protocol used, or keeps it until the next flush with batching
+     * @param message (JassMessage): the message
+     * @throws UncheckedIOException if I/O operations are interrupted and the game can not be resumed
+     */
+    private synchronized void sendUnchecked(JassMessage message) {
+        JassCommand command = message.command();
+        if (REPLAYED.contains(command)) {
+            lastState.put(command, message);
+        }
         try {
-            w.write(StringSerializer.combine(" ", winr, team));
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            if (flushError != null) {
+                throw flushError;
+            }
+            negotiate();
+            if (!batching) {
+                pending.add(message);
+                flushPending();
+                return;
+            }
+
+            for (Iterator<JassMessage> i = pending.iterator(); i.hasNext();) {
+                JassCommand previous = i.next().command();
+                if ((COALESCED.contains(command) && previous == command) || (command == JassCommand.RESH && RESET_BY_RESH.contains(previous))) {
+                    i.remove();
+                }
+            }
+            pending.add(message);
+            if (lingerFlush == null) {
+                lingerFlush = LINGER_TIMER.schedule(this::lingerFlush, lingerTime, TimeUnit.NANOSECONDS);
+            }
         }
+        catch(IOException e) {
+            //A notification giving the state of the game is sent again by the resume, the others are sent after it
+            resume(e);
+            if (!REPLAYED.contains(command)) {
+                sendUnchecked(message);
+            }
+        }
+    }
 
+    /**
+     * Writes the given message in the protocol used, without flushing the stream
+     * @param message (JassMessage): the message
+     * @throws IOException if I/O operations are interrupted
+     */
+    private void write(JassMessage message) throws IOException {
+        if (binary) {
+            message.writeBinary(w);
+        }
+        else {
+            message.writeText(w);
+        }
+        ++messages;
     }
-    
+
     /**
-     * Override of the method setHelp of player
+     * Writes the notifications waiting (with batching) and flushes the stream
+     * @throws IOException if I/O operations are interrupted
      */
-    public void setHelp(TurnState state, CardSet hand, PlayerId id) {
-        String help =JassCommand.HELP.name();
-
-        String score = StringSerializer.serializeLong(state.packedScore());
-        String unplayedCard = StringSerializer.serializeLong(state.packedUnplayedCards());
-        String trick = StringSerializer.serializeInt(state.packedTrick());
-        String turnState = StringSerializer.combine(",", score, unplayedCard, trick);
-        
-        String Hand = StringSerializer.serializeLong(hand.packed());
-        
-        String ownId = StringSerializer.serializeInt(id.ordinal());
-        
-        
-        
-        String message = StringSerializer.combine(" ", help, ownId, turnState, Hand );
+    private void flushPending() throws IOException {
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        Iterator<JassMessage> i = pending.iterator();
+        while (i.hasNext()) {
+            write(i.next());
+            i.remove();
+        }
+        w.flush();
+        ++flushes;
+    }
+
+    /**
+     * Sends the notifications waiting at the end of the linger time (called by the timer), the error being kept to be
+     * thrown by the next call of the game
+     */
+    private synchronized void lingerFlush() {
+        if (lingerFlush == null) {
+            return;
+        }
+        lingerFlush = null;
         try {
-            w.write(message);
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            flushPending();
+        }
+        catch(IOException e) {
+            flushError = e;
         }
     }
-    
+
     /**
-     * Override of the method resetHelp of player
+     * Connects to the server (with the connect timeout)
+     * @throws IOException if the connection fails
      */
-    public void resetHelp() {
-        String res= JassCommand.RESH.name();
+    private void connect() throws IOException {
+        Socket socket = new Socket();
         try {
-            w.write(res);
-            w.write('\n');
-            w.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            socket.connect(new InetSocketAddress(hostName, port), connectTimeout);
+            open(socket);
+        }
+        catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the streams of the given socket and proposes the binary protocol and the heartbeats to the server, if asked
+     * @param socket (Socket): the socket connected to the server
+     * @throws IOException if I/O operations are interrupted
+     */
+    private void open(Socket socket) throws IOException {
+        s = socket;
+        r = new BufferedInputStream(s.getInputStream());
+        w = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        s.setTcpNoDelay(batching);
+        binary = false;
+        heartbeats = false;
+
+        //Without anything to propose, the original text protocol is used and the server is never waited for with a timeout
+        int proposed = (proposesBinary ? JassMessage.BINARY : 0) | (proposesHeartbeats ? JassMessage.HEARTBEATS : 0);
+        if (proposed == 0) {
+            s.setSoTimeout(0);
+            negotiating = false;
+            return;
+        }
+
+        //The answer of the server is only read before the first message, so that the constructor does not wait for it
+        JassMessage.of(JassCommand.PROT, proposed).writeText(w);
+        w.flush();
+        s.setSoTimeout(readTimeout);
+        negotiating = true;
+    }
+
+    /**
+     * Reads the answer of the server to the proposition of the heartbeats and of the binary protocol, if it has not
+     * been read yet. The server is then waited for at most the read timeout only if it sends heartbeats
+     * @throws IOException if I/O operations are interrupted
+     */
+    private void negotiate() throws IOException {
+        if (negotiating) {
+            String answer = JassMessage.readLine(r);
+            if (answer == null) {
+                throw new EOFException();
+            }
+            int features = StringSerializer.deserializeInt(answer);
+            binary = (features & JassMessage.BINARY) != 0;
+            heartbeats = (features & JassMessage.HEARTBEATS) != 0;
+            s.setSoTimeout(heartbeats ? readTimeout : 0);
+            negotiating = false;
         }
     }
 
+    /**
+     * Resumes the game after a lost connection: connects again to the server and sends again the state of the game
+     * (the notifications not giving the state which were waiting being sent after it), trying for at most the resume time
+     * @param cause (IOException): the error of the lost connection
+     * @throws UncheckedIOException if the game can not be resumed
+     */
+    private synchronized void resume(IOException cause) {
+        try {
+            s.close();
+        }
+        catch (IOException e) {}
+        if (hostName == null || resumeTime == 0) {
+            throw new UncheckedIOException(cause);
+        }
+
+        flushError = null;
+        if (lingerFlush != null) {
+            lingerFlush.cancel(false);
+            lingerFlush = null;
+        }
+        pending.removeIf(m -> REPLAYED_AND_CARD.contains(m.command()));
+        List<JassMessage> notSent = new ArrayList<>(pending);
+
+        long end = System.nanoTime()+resumeTime;
+        IOException error = cause;
+        do {
+            try {
+                connect();
+                negotiate();
+                pending.clear();
+                for (JassCommand command: REPLAYED) {
+                    if (lastState.containsKey(command)) {
+                        pending.add(lastState.get(command));
+                    }
+                }
+                pending.addAll(notSent);
+                flushPending();
+                ++resumes;
+                return;
+            }
+            catch (IOException e) {
+                error = e;
+                try {
+                    s.close();
+                    Thread.sleep(RETRY_DELAY);
+                }
+                catch (IOException e2) {}
+                catch (InterruptedException e2) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } while (System.nanoTime()-end < 0);
+        throw new UncheckedIOException(error);
+    }
 }
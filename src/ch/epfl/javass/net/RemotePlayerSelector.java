@@ -0,0 +1,149 @@
+package ch.epfl.javass.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class which represents the thread of input/output driving the connections of many distant players (see
+ * AsyncRemotePlayer): the channels are not blocking and a single thread, waiting on a selector, writes the messages
+ * of all the players and reads their answers.
+ * The threads of the games never wait for the network, except when they wait for a card they asked for
+ * @author Liam Mouzaoui (295797)
+ * @author Remi Delacourt (300849)
+ */
+public final class RemotePlayerSelector implements AutoCloseable {
+
+    private final Selector selector;
+    private final Thread thread;
+
+    //The operations to execute by the thread of input/output (registrations and writes), given by the other threads
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger players = new AtomicInteger();
+    private volatile boolean open = true;
+
+    /**
+     * Constructor of RemotePlayerSelector, which starts its thread (a daemon)
+     * @throws IOException if the selector can not be opened
+     */
+    public RemotePlayerSelector() throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this::run, "RemotePlayerSelector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Connects to the server of a distant player
+     * @param hostName (String): the name of the host on which the server of the distant player executes itself
+     * @param port (int): the port of the server
+     * @param binary (boolean): true to propose the binary protocol to the server, false to use the text protocol
+     * @return (AsyncRemotePlayer): the distant player
+     * @throws IOException if the connection fails
+     */
+    public AsyncRemotePlayer connect(String hostName, int port, boolean binary) throws IOException {
+        return register(SocketChannel.open(new InetSocketAddress(hostName, port)), binary);
+    }
+
+    /**
+     * Drives the given channel, already connected to a distant player (accepted by the game server for instance)
+     * @param channel (SocketChannel): the channel connected to the distant player
+     * @param binary (boolean): true to propose the binary protocol to the server, false to use the text protocol
+     * @return (AsyncRemotePlayer): the distant player
+     * @throws IOException if the channel can not be configured
+     */
+    public AsyncRemotePlayer register(SocketChannel channel, boolean binary) throws IOException {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        AsyncRemotePlayer player = new AsyncRemotePlayer(this, channel, binary);
+        players.incrementAndGet();
+        execute(() -> player.register(selector));
+        return player;
+    }
+
+    /**
+     * Gives the number of distant players whose connection is open
+     * @return (int): the number of players
+     */
+    public int players() {
+        return players.get();
+    }
+
+    /**
+     * Closes the selector and the connections of all the distant players
+     */
+    @Override
+    public void close() {
+        open = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gives an operation to execute by the thread of input/output
+     * @param task (Runnable): the operation
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Tells that the connection of a distant player has been closed
+     */
+    void closed() {
+        players.decrementAndGet();
+    }
+
+    /**
+     * Loop of the thread of input/output: executes the operations given, then reads and writes the channels ready
+     */
+    private void run() {
+        try {
+            while (open) {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                for (SelectionKey key: selector.selectedKeys()) {
+                    AsyncRemotePlayer player = (AsyncRemotePlayer)key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        player.flush();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        player.read();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (ClosedSelectorException e) {}
+        finally {
+            for (SelectionKey key: new ArrayList<>(selector.keys())) {
+                ((AsyncRemotePlayer)key.attachment()).fail(new IOException("Selector closed"));
+            }
+            try {
+                selector.close();
+            }
+            catch (IOException e) {}
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package ch.epfl.javass.net;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import ch.epfl.javass.jass.Card.Color;
 import ch.epfl.javass.jass.CardSet;
@@ -24,15 +34,39 @@ import ch.epfl.javass.jass.TurnState;
 
 /**
  * Class which represents a server of a player 
+ * The host can resume the game after a lost connection: the server accepts a new connection until the end of the game,
+ * a new connection replacing the previous one, and the host sends again the state of the game (see RemotePlayerClient),
+ * which is only given again to the local player if it changed
  * @author Liam Mouzaoui (295797)
  * @author Remi Delacourt (300849)
  */
 public final class RemotePlayerServer {
 
     private Player localPlayer ;
+    private final boolean acceptsBinary;
     
   /**Port number **/
     protected static final int SERVER_PORT = 5108;
+
+    private final static double MILLISECONDS_PER_SECOND = 1000;
+
+    //The timer sending the heartbeats while the local player chooses its card, shared by all the servers
+    private final static ScheduledExecutorService HEARTBEAT_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "RemotePlayerServer heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    //The notifications giving the state of the game, which the host sends again after a lost connection
+    private final static Set<JassCommand> REPLAYED = EnumSet.of(JassCommand.PLRS, JassCommand.TRMP, JassCommand.HAND,
+            JassCommand.SCOR, JassCommand.TRCK);
+
+    //The last notification of each kind giving the state of the game (the ones sent again after a lost connection are
+    //then not given again to the local player if they are equal), and the last card asked and the card played (given
+    //again without asking the local player if the answer has been lost)
+    private final Map<JassCommand, JassMessage> lastState = new EnumMap<>(JassCommand.class);
+    private JassMessage lastCardRequest;
+    private int lastCard;
     
     
     /**
@@ -40,116 +74,228 @@ public final class RemotePlayerServer {
      * @param localPlayer (Player) : the player type of the local player
      */
     public RemotePlayerServer(Player localPlayer) {
+        this(localPlayer, true);
+    }
+
+    /**
+     * Constructor of RemotePlayerServer
+     * @param localPlayer (Player) : the player type of the local player
+     * @param acceptsBinary (boolean): true to accept the binary protocol if the host proposes it (see JassMessage),
+     * false to always use the text protocol
+     */
+    public RemotePlayerServer(Player localPlayer, boolean acceptsBinary) {
         this.localPlayer=localPlayer;
+        this.acceptsBinary=acceptsBinary;
     }
     
     /**
      * Method that runs the server which allows to communicate between the host and the distant player
      * Waits for the connection of the distant player, then sends information to it. Finally, if the distant player
      * sent some information, reads it and interprets it.
+     * If the connection is lost before the end of the game, waits for the host to connect again
      */
     public void run()  {
-        try (ServerSocket sev0 = new ServerSocket(SERVER_PORT);
-                Socket s = sev0.accept();
-                BufferedReader r =
-                  new BufferedReader(
-                    new InputStreamReader(s.getInputStream(),
-                            StandardCharsets.US_ASCII));
-                BufferedWriter w =
-                  new BufferedWriter(
-                    new OutputStreamWriter(s.getOutputStream(),
-                            StandardCharsets.US_ASCII))) {
-            String str = new String();
-            
-            while ( (str= r.readLine())!=null) {
-                String[] baseTab= StringSerializer.split(str, " ");
-                String code = baseTab[0]; 
-                switch(JassCommand.valueOf(code)) {
-                
+        try (ServerSocket sev0 = new ServerSocket(SERVER_PORT)) {
+            BlockingQueue<Socket> connections = new LinkedBlockingQueue<>();
+            AtomicReference<Socket> current = new AtomicReference<>();
+            Thread acceptThread = new Thread(() -> {
+                try {
+                    while (true) {
+                        //The connection served is closed so that the reading of its messages stops
+                        Socket s = sev0.accept();
+                        Socket previous = current.get();
+                        connections.add(s);
+                        if (previous != null) {
+                            previous.close();
+                        }
+                    }
+                }
+                catch (IOException e) {
+                    //The server socket is closed at the end of the game
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+
+            boolean gameOver = false;
+            while (!gameOver) {
+                try (Socket s = connections.take()) {
+                    current.set(s);
+                    gameOver = serve(s, connections);
+                }
+                catch (IOException e) {
+                    //The connection is lost: the host may connect again
+                }
+            }
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method that connects to a game server (which hosts many games, see GameServer) instead of waiting for the
+     * connection of the host, then reads and interprets the information sent by the game server as run does
+     * @param hostName (String): the name of the host on which the game server executes itself
+     * @param port (int): the port of the game server
+     */
+    public void runConnectedTo(String hostName, int port) {
+        try (Socket s = new Socket(hostName, port)) {
+            serve(s, new LinkedBlockingQueue<>());
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads and interprets the information sent through the given socket until it is closed by the host, or replaced
+     * by a new connection
+     * @param s (Socket): the socket connected to the host of the game
+     * @param connections (BlockingQueue<Socket>): the new connections, not served yet
+     * @return (boolean): true if the game is over (the winning team has been received), false if the connection ended before
+     * @throws IOException if I/O operations are interrupted
+     */
+    private boolean serve(Socket s, BlockingQueue<Socket> connections) throws IOException {
+        try (DataInputStream r = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                DataOutputStream w = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))) {
+            //The messages are in the text protocol until the host proposes the binary protocol and it is accepted
+            boolean binary = false;
+            boolean heartbeats = false;
+            JassMessage message;
+
+            //On a resumed game, the state sent again first (once per kind) is only given to the local player if it changed
+            boolean replaying = !lastState.isEmpty();
+            Set<JassCommand> replayed = EnumSet.noneOf(JassCommand.class);
+
+            //A new connection means that the host resumes the game, this one being lost
+            while (connections.isEmpty() && (message = binary ? JassMessage.readBinary(r) : readText(r)) != null) {
+                JassCommand command = message.command();
+                if (REPLAYED.contains(command)) {
+                    replaying = replaying && replayed.add(command);
+                    if (replaying && message.equals(lastState.get(command))) {
+                        continue;
+                    }
+                    lastState.put(command, message);
+                }
+                else if (command != JassCommand.PROT) {
+                    replaying = false;
+                }
+
+                switch(command) {
+
                 case CARD:
-                    String [] turnInfo = StringSerializer.split(baseTab[1], ",");
-                    
-                    TurnState turnState = TurnState.ofPackedComponents(StringSerializer.deserializeLong(turnInfo[0]), 
-                                                                       StringSerializer.deserializeLong(turnInfo[1]), 
-                                                                       StringSerializer.deserializeInt(turnInfo[2]));
-                    
-                    long packedHand = StringSerializer.deserializeLong(baseTab[2]);
-                    int pkCard = localPlayer.cardToPlay(turnState, CardSet.ofPacked(packedHand)).packed();
-                    String card = StringSerializer.serializeInt(pkCard);
-                   
-                    w.write(card);
-                    w.write('\n');
-                    w.flush();
+                    if (!message.equals(lastCardRequest)) {
+                        TurnState turnState = TurnState.ofPackedComponents(message.longField(0), message.longField(1), message.intField(2));
+                        CardSet hand = CardSet.ofPacked(message.longField(3));
+                        lastCardRequest = null;
+                        lastCard = heartbeats ? cardWithHeartbeats(turnState, hand, w, binary) : localPlayer.cardToPlay(turnState, hand).packed();
+                        lastCardRequest = message;
+                    }
+                    synchronized (w) {
+                        JassMessage.writeCard(w, lastCard, binary);
+                        w.flush();
+                    }
                     break;
-                    
+
                 case HAND:
-                    long pckHand = StringSerializer.deserializeLong(baseTab[1]);
-                    CardSet hand = CardSet.ofPacked(pckHand);
-                    localPlayer.updateHand(hand);
+                    localPlayer.updateHand(CardSet.ofPacked(message.longField(0)));
                     break;
-                    
+
                 case PLRS:
-                    int ownIndex = StringSerializer.deserializeInt(baseTab[1]);
-                    String[] nameTab = StringSerializer.split(baseTab[2], ",");
-                    String[] helpTab = StringSerializer.split(baseTab[3], ",");
                     Map<PlayerId, String> playerNames = new TreeMap<>();
                     Map<PlayerId, Boolean> helpMap = new HashMap<>();
-                    
-                    for (int i=0; i<PlayerId.COUNT; ++i) {
-                        playerNames.put(PlayerId.ALL.get(i),StringSerializer.deserializeString(nameTab[i]));
-                        int needHelp= StringSerializer.deserializeInt(helpTab[i]);
-                        helpMap.put(PlayerId.ALL.get(i), needHelp==1);
+
+                    for (PlayerId id: PlayerId.ALL) {
+                        playerNames.put(id, message.name(id));
+                        helpMap.put(id, message.help(id));
                     }
-                    localPlayer.setPlayers(PlayerId.ALL.get(ownIndex), playerNames, helpMap);
+                    localPlayer.setPlayers(PlayerId.ALL.get(message.intField(0)), playerNames, helpMap);
                     break;
-                    
+
                 case SCOR:
-                    long score = StringSerializer.deserializeLong(baseTab[1]);
-                    localPlayer.updateScore(Score.ofPacked(score));
+                    localPlayer.updateScore(Score.ofPacked(message.longField(0)));
                     break;
-                    
+
                 case TRCK:
-                    int trick = StringSerializer.deserializeInt(baseTab[1]);
-                    localPlayer.updateTrick(Trick.ofPacked(trick));
+                    localPlayer.updateTrick(Trick.ofPacked(message.intField(0)));
                     break;
-                    
+
                 case TRMP:
-                    int trump = StringSerializer.deserializeInt(baseTab[1]);
-                    localPlayer.setTrump(Color.ALL.get(trump));
+                    localPlayer.setTrump(Color.ALL.get(message.intField(0)));
                     break;
-                    
+
                 case WINR:
-                    int winner = StringSerializer.deserializeInt(baseTab[1]);
-                    localPlayer.setWinningTeam(TeamId.ALL.get(winner));
-                    break;
+                    localPlayer.setWinningTeam(TeamId.ALL.get(message.intField(0)));
+                    return true;
+
                 case HELP:
-                    int Id = StringSerializer.deserializeInt(baseTab[1]);
-                    
-                    String [] turn = StringSerializer.split(baseTab[2], ",");
-                    
-                    TurnState sate = TurnState.ofPackedComponents(StringSerializer.deserializeLong(turn[0]), 
-                                                                       StringSerializer.deserializeLong(turn[1]), 
-                                                                       StringSerializer.deserializeInt(turn[2]));
-                    long packHand = StringSerializer.deserializeLong(baseTab[3]);
-                    
-                    localPlayer.setHelp(sate, CardSet.ofPacked(packHand), PlayerId.ALL.get(Id));
-                    
+                    TurnState state = TurnState.ofPackedComponents(message.longField(1), message.longField(2), message.intField(3));
+                    localPlayer.setHelp(state, CardSet.ofPacked(message.longField(4)), PlayerId.ALL.get(message.intField(0)));
                     break;
-                    
+
                 case RESH:
                     localPlayer.resetHelp();
                     break;
-                    
+
+                case PROT:
+                    int accepted = message.intField(0) & (acceptsBinary ? JassMessage.BINARY|JassMessage.HEARTBEATS : JassMessage.HEARTBEATS);
+                    w.write(StringSerializer.serializeInt(accepted).getBytes(StandardCharsets.US_ASCII));
+                    w.write('\n');
+                    w.flush();
+                    binary = (accepted & JassMessage.BINARY) != 0;
+                    heartbeats = (accepted & JassMessage.HEARTBEATS) != 0;
+                    break;
+
                 default:
-                    System.err.println("Unknow Jass Command: "+code );
+                    System.err.println("Unknow Jass Command: "+message.command());
                     break;
                 }
             }
-            
-            
+            return false;
         }
-        catch(IOException e){
-            throw new UncheckedIOException(e);
+    }
+
+    /**
+     * Asks the local player the card to play, sending heartbeats to the host while it chooses
+     * @param state (TurnState): the state of the turn
+     * @param hand (CardSet): the hand of the player
+     * @param w (DataOutputStream): the stream to the host
+     * @param binary (boolean): true if the binary protocol is used
+     * @return (int): the packed card
+     */
+    private int cardWithHeartbeats(TurnState state, CardSet hand, DataOutputStream w, boolean binary) {
+        long period = (long)(JassMessage.HEARTBEAT_PERIOD*MILLISECONDS_PER_SECOND);
+        ScheduledFuture<?> heartbeat = HEARTBEAT_TIMER.scheduleAtFixedRate(() -> {
+            synchronized (w) {
+                try {
+                    JassMessage.writeHeartbeat(w, binary);
+                    w.flush();
+                }
+                catch (IOException e) {
+                    //The connection is lost, which will be seen when the card is sent
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        try {
+            return localPlayer.cardToPlay(state, hand).packed();
+        }
+        finally {
+            heartbeat.cancel(false);
         }
     }
+
+    /**
+     * Reads a message of the text protocol
+     * @param r (DataInputStream): the stream from which the message is read
+     * @return (JassMessage): the message, null if the stream ended
+     * @throws IOException if I/O operations are interrupted
+     */
+    private static JassMessage readText(DataInputStream r) throws IOException {
+        String line = JassMessage.readLine(r);
+        return line == null ? null : JassMessage.ofText(line);
+    }
 }